@@ -0,0 +1,90 @@
+package com.noble;
+
+import com.noble.models.SliceProfilesInfo;
+import org.openjdk.jmh.annotations.*;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Graph construction from slice profiles and the path search of printViolations, measured apart from each other.
+ * Every measurement runs on an {@link AnalysisSession} of its own, with buffer checks and violations enabled as in
+ * a real scan, so findPaths searches the paths to every violation. Output of the analysis is discarded while the
+ * benchmark runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnalysisBenchmark {
+
+//  medium has no Java sources, so nothing is analyzed for it
+    @Param({"small", "large", "sample"})
+    public String fixture;
+
+    private Map<String, SliceProfilesInfo> profilesInfo;
+    private PrintStream out;
+    private PrintStream err;
+
+    @Setup(Level.Trial)
+    public void slice() throws XMLStreamException {
+        profilesInfo = Fixtures.slice(Fixtures.units(Fixtures.load(fixture)));
+        out = System.out;
+        err = System.err;
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(discard);
+        System.setErr(discard);
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreOutput() {
+        System.setOut(out);
+        System.setErr(err);
+    }
+
+    @State(Scope.Benchmark)
+    public static class LoadedProfiles {
+        private AnalysisSession session;
+
+        @Setup(Level.Invocation)
+        public void load(AnalysisBenchmark benchmark) {
+            session = benchmark.session();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BuiltGraph {
+        private AnalysisSession session;
+
+        @Setup(Level.Trial)
+        public void build(AnalysisBenchmark benchmark) throws InterruptedException, ExecutionException {
+            session = benchmark.session();
+            session.buildDependencyGraph();
+        }
+    }
+
+    @Benchmark
+    public int buildDependencyGraph(LoadedProfiles profiles) throws InterruptedException, ExecutionException {
+        profiles.session.buildDependencyGraph();
+        return profiles.session.dependencyGraph().vertexCount();
+    }
+
+    @Benchmark
+    public Object findPaths(BuiltGraph graph) throws InterruptedException, ExecutionException {
+        return graph.session.printViolations(System.currentTimeMillis());
+    }
+
+    private AnalysisSession session() {
+        AnalysisConfig config = AnalysisConfig.builder(MODE.TESTING).checkBuffer(true).skipViolations(false).build();
+        AnalysisSession session = new AnalysisSession(config);
+        session.loadSliceProfiles(profilesInfo);
+        session.indexSliceProfiles();
+        return session;
+    }
+}
@@ -0,0 +1,55 @@
+package com.noble;
+
+import com.noble.models.SliceProfilesInfo;
+import org.w3c.dom.Node;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static com.noble.util.UnitStreamReader.forEachUnit;
+
+/**
+ * srcML archives the benchmarks run on. small is one JNI class with its native side and a helper library,
+ * medium a C++ library with no Java and large a mixed tree of Java classes, their JNI units and libraries. These
+ * three are generated markup whose positions do not come from any source. sample is what srcML 1.0.0 wrote for
+ * {@code srcml imgkit --position} on imgkit, a sample project of Java bindings, their JNI glue and the C and C++
+ * library behind them, so its positions and markup are those of a real scan. {@code srcml --to-dir} restores the
+ * project from it. large is kept with the tests of srcbuggy, which analyze it too, and packaged from there.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static byte[] load(String fixture) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + fixture + ".xml.gz")) {
+            if (in == null) {
+                throw new IllegalArgumentException("No fixture named " + fixture);
+            }
+            try (InputStream xml = new GZIPInputStream(in)) {
+                return xml.readAllBytes();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Map<String, Node> units(byte[] srcml) throws XMLStreamException {
+        Map<String, Node> units = new LinkedHashMap<>();
+        forEachUnit(new ByteArrayInputStream(srcml), units::put);
+        return units;
+    }
+
+    static Map<String, SliceProfilesInfo> slice(Map<String, Node> units) {
+        Map<String, SliceProfilesInfo> profilesInfo = new LinkedHashMap<>();
+        units.forEach((sourceFilePath, unitNode) ->
+                profilesInfo.put(sourceFilePath, new SliceGenerator(unitNode, sourceFilePath).generate()));
+        return profilesInfo;
+    }
+}
@@ -0,0 +1,57 @@
+package com.noble;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import static com.noble.util.XmlUtil.asList;
+
+/**
+ * XmlUtil.getNodeByName as it was before it walked sibling links, kept as the baseline of TraversalBenchmark.
+ */
+final class LegacyXmlTraversal {
+
+    private LegacyXmlTraversal() {
+    }
+
+    static List<Node> getNodeByName(Node parent, String tag) {
+        List<Node> namedNodes = getNodesBase(parent, tag);
+        if (namedNodes.size() > 0) {
+            return namedNodes;
+        }
+        NodeList deep = parent.getChildNodes();
+        for (int i = 0, len = deep.getLength(); i < len; i++) {
+            if (deep.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                List<Node> attr = getNodeByName(deep.item(i), tag);
+                if (attr.size() > 0) {
+                    return attr;
+                }
+            }
+        }
+        return namedNodes;
+    }
+
+    static List<Node> getNodesByName(Node parent, String tag) {
+        List<Node> nodeList = new ArrayList<>(getNodesBase(parent, tag));
+        NodeList deep = parent.getChildNodes();
+        for (int i = 0, len = deep.getLength(); i < len; i++) {
+            if (deep.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                nodeList.addAll(getNodesByName(deep.item(i), tag));
+            }
+        }
+        return nodeList;
+    }
+
+    private static List<Node> getNodesBase(Node parent, String tag) {
+        List<Node> namedNodes = new LinkedList<>(asList(parent.getChildNodes()));
+        for (int x = namedNodes.size() - 1; x >= 0; x--) {
+            if (!namedNodes.get(x).getNodeName().equals(tag)) {
+                namedNodes.remove(x);
+            }
+        }
+        return namedNodes;
+    }
+}
@@ -0,0 +1,48 @@
+package com.noble;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.noble.util.UnitStreamReader.forEachUnit;
+
+/**
+ * Turning srcML output into trees, one {@link com.noble.util.SrcmlTree} per unit as the streaming reader does and
+ * the whole archive as one DOM document as the legacy path does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"small", "medium", "large", "sample"})
+    public String fixture;
+
+    private byte[] srcml;
+
+    @Setup
+    public void load() {
+        srcml = Fixtures.load(fixture);
+    }
+
+    @Benchmark
+    public void streamUnits(Blackhole blackhole) throws XMLStreamException {
+        forEachUnit(new ByteArrayInputStream(srcml), (sourceFilePath, unitNode) -> blackhole.consume(unitNode));
+    }
+
+    @Benchmark
+    public Document parseDocument() throws ParserConfigurationException, IOException, SAXException {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(srcml));
+    }
+}
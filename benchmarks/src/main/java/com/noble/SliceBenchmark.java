@@ -0,0 +1,63 @@
+package com.noble;
+
+import com.noble.util.XmlUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Node;
+
+import javax.xml.stream.XMLStreamException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SliceGenerator.generate over every unit of a fixture, serially, on trees parsed once up front. slicedNodes
+ * reports the same work as srcML nodes sliced per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SliceBenchmark {
+
+    @Param({"small", "medium", "large", "sample"})
+    public String fixture;
+
+    private Map<String, Node> units;
+    private long unitNodes;
+
+    @Setup
+    public void parse() throws XMLStreamException {
+        units = Fixtures.units(Fixtures.load(fixture));
+        unitNodes = 0;
+        for (Node unitNode : units.values()) {
+            unitNodes += XmlUtil.countNodes(unitNode);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Benchmark
+    public void generate(Blackhole blackhole) {
+        units.forEach((sourceFilePath, unitNode) ->
+                blackhole.consume(new SliceGenerator(unitNode, sourceFilePath).generate()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void slicedNodes(Blackhole blackhole, Throughput throughput) {
+        generate(blackhole);
+        throughput.nodes += unitNodes;
+    }
+}
@@ -0,0 +1,64 @@
+package com.noble;
+
+import com.noble.util.XmlUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Node;
+
+import javax.xml.stream.XMLStreamException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lookups SliceGenerator and the call-site tables make on every function of a fixture, with XmlUtil and with
+ * the list-copying traversal it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TraversalBenchmark {
+
+    private static final String[] FIRST_TAGS = {"block", "parameter_list", "name", "init"};
+    private static final String[] ALL_TAGS = {"call", "decl"};
+
+    @Param({"small", "medium", "large", "sample"})
+    public String fixture;
+
+    private List<Node> functionNodes;
+
+    @Setup
+    public void parse() throws XMLStreamException {
+        functionNodes = new ArrayList<>();
+        for (Node unitNode : Fixtures.units(Fixtures.load(fixture)).values()) {
+            functionNodes.addAll(XmlUtil.getNodeByName(unitNode, "function", true));
+        }
+    }
+
+    @Benchmark
+    public void siblingWalk(Blackhole blackhole) {
+        for (Node functionNode : functionNodes) {
+            for (String tag : FIRST_TAGS) {
+                blackhole.consume(XmlUtil.getNodeByName(functionNode, tag));
+            }
+            for (String tag : ALL_TAGS) {
+                blackhole.consume(XmlUtil.getNodeByName(functionNode, tag, true));
+            }
+        }
+    }
+
+    @Benchmark
+    public void legacyCopyAndRemove(Blackhole blackhole) {
+        for (Node functionNode : functionNodes) {
+            for (String tag : FIRST_TAGS) {
+                blackhole.consume(LegacyXmlTraversal.getNodeByName(functionNode, tag));
+            }
+            for (String tag : ALL_TAGS) {
+                blackhole.consume(LegacyXmlTraversal.getNodesByName(functionNode, tag));
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.noble;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Settings of an {@link AnalysisSession}. {@link #builder()} starts from the settings of a regular scan,
+ * {@code srcbuggy.*} system properties included, and any of them can be changed before the session is created.
+ */
+public final class AnalysisConfig {
+    private final boolean checkBuffer;
+    private final boolean startFromCpp;
+    private final boolean exportGraph;
+    private final boolean skipSrcml;
+    private final boolean skipViolations;
+    private final boolean streamUnits;
+    private final int sliceParallelism;
+    private final int analysisParallelism;
+    private final int srcmlBatchSize;
+    private final int srcmlProcesses;
+    private final String srcmlCacheDirectory;
+    private final String metricsReport;
+    private final int fileBudgetMillis;
+    private final boolean lazySlicing;
+    private final List<String> lookupString;
+    private final boolean incremental;
+
+    private AnalysisConfig(Builder builder) {
+        this.checkBuffer = builder.checkBuffer;
+        this.startFromCpp = builder.startFromCpp;
+        this.exportGraph = builder.exportGraph;
+        this.skipSrcml = builder.skipSrcml;
+        this.skipViolations = builder.skipViolations;
+        this.streamUnits = builder.streamUnits;
+        this.sliceParallelism = builder.sliceParallelism;
+        this.analysisParallelism = builder.analysisParallelism;
+        this.srcmlBatchSize = builder.srcmlBatchSize;
+        this.srcmlProcesses = builder.srcmlProcesses;
+        this.srcmlCacheDirectory = builder.srcmlCacheDirectory;
+        this.metricsReport = builder.metricsReport;
+        this.fileBudgetMillis = builder.fileBudgetMillis;
+        this.lazySlicing = builder.lazySlicing;
+        this.lookupString = Collections.unmodifiableList(new ArrayList<>(builder.lookupString));
+        this.incremental = builder.incremental;
+    }
+
+    /**
+     * The mode named by {@code srcbuggy.mode}, {@link MODE#TESTING} when it is not set.
+     */
+    static MODE mode() {
+        return MODE.named(System.getProperty("srcbuggy.mode", MODE.TESTING.modeName()));
+    }
+
+    static AnalysisConfig of(MODE mode) {
+        return new Builder(mode).build();
+    }
+
+    static Builder builder(MODE mode) {
+        return new Builder(mode);
+    }
+
+    public static Builder builder() {
+        return new Builder(MODE.NON_TESTING);
+    }
+
+    public boolean checkBuffer() {
+        return checkBuffer;
+    }
+
+    public boolean startFromCpp() {
+        return startFromCpp;
+    }
+
+    public boolean exportGraph() {
+        return exportGraph;
+    }
+
+    public boolean skipSrcml() {
+        return skipSrcml;
+    }
+
+    public boolean skipViolations() {
+        return skipViolations;
+    }
+
+    public boolean streamUnits() {
+        return streamUnits;
+    }
+
+    public int sliceParallelism() {
+        return sliceParallelism;
+    }
+
+    public int analysisParallelism() {
+        return analysisParallelism;
+    }
+
+    public int srcmlBatchSize() {
+        return srcmlBatchSize;
+    }
+
+    public int srcmlProcesses() {
+        return srcmlProcesses;
+    }
+
+    public String srcmlCacheDirectory() {
+        return srcmlCacheDirectory;
+    }
+
+    public String metricsReport() {
+        return metricsReport;
+    }
+
+    public int fileBudgetMillis() {
+        return fileBudgetMillis;
+    }
+
+    public boolean lazySlicing() {
+        return lazySlicing;
+    }
+
+    public List<String> lookupString() {
+        return lookupString;
+    }
+
+    public boolean incremental() {
+        return incremental;
+    }
+
+    public static final class Builder {
+        private boolean checkBuffer;
+        private boolean startFromCpp;
+        private boolean exportGraph;
+        private boolean skipSrcml;
+        private boolean skipViolations;
+        private boolean streamUnits;
+        private int sliceParallelism;
+        private int analysisParallelism;
+        private int srcmlBatchSize;
+        private int srcmlProcesses;
+        private String srcmlCacheDirectory;
+        private String metricsReport;
+        private int fileBudgetMillis;
+        private boolean lazySlicing;
+        private List<String> lookupString;
+        private boolean incremental;
+
+        private Builder(MODE mode) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            this.checkBuffer = mode.checkBuffer();
+            this.startFromCpp = mode.startFromCpp();
+            this.exportGraph = mode.exportGraph();
+            this.skipSrcml = mode.skipSrcml();
+            this.skipViolations = mode.skipViolations();
+            this.streamUnits = true;
+            this.sliceParallelism = Integer.getInteger("srcbuggy.parallelism", processors);
+            this.analysisParallelism = Integer.getInteger("srcbuggy.analysis.parallelism", processors);
+            this.srcmlBatchSize = Integer.getInteger("srcbuggy.srcml.batch", mode.srcmlBatchSize());
+            this.srcmlProcesses = Integer.getInteger("srcbuggy.srcml.processes", processors);
+            this.srcmlCacheDirectory = System.getProperty("srcbuggy.cache", mode.srcmlCacheDirectory());
+            this.metricsReport = System.getProperty("srcbuggy.metrics", "");
+            this.fileBudgetMillis = Integer.getInteger("srcbuggy.file.budget", 0);
+            this.lazySlicing = Boolean.getBoolean("srcbuggy.slice.lazy");
+            this.lookupString = mode.lookupString();
+        }
+
+        public Builder checkBuffer(boolean checkBuffer) {
+            this.checkBuffer = checkBuffer;
+            return this;
+        }
+
+        public Builder startFromCpp(boolean startFromCpp) {
+            this.startFromCpp = startFromCpp;
+            return this;
+        }
+
+        public Builder exportGraph(boolean exportGraph) {
+            this.exportGraph = exportGraph;
+            return this;
+        }
+
+        public Builder skipSrcml(boolean skipSrcml) {
+            this.skipSrcml = skipSrcml;
+            return this;
+        }
+
+        /**
+         * Print the paths from every Java source matching {@link #lookupString(List)} instead of the violations.
+         */
+        public Builder skipViolations(boolean skipViolations) {
+            this.skipViolations = skipViolations;
+            return this;
+        }
+
+        public Builder streamUnits(boolean streamUnits) {
+            this.streamUnits = streamUnits;
+            return this;
+        }
+
+        public Builder sliceParallelism(int sliceParallelism) {
+            this.sliceParallelism = sliceParallelism;
+            return this;
+        }
+
+        public Builder analysisParallelism(int analysisParallelism) {
+            this.analysisParallelism = analysisParallelism;
+            return this;
+        }
+
+        /**
+         * Files per srcML invocation, below 1 the whole project goes through a single srcML run.
+         */
+        public Builder srcmlBatchSize(int srcmlBatchSize) {
+            this.srcmlBatchSize = srcmlBatchSize;
+            return this;
+        }
+
+        public Builder srcmlProcesses(int srcmlProcesses) {
+            this.srcmlProcesses = srcmlProcesses;
+            return this;
+        }
+
+        /**
+         * Directory of the srcML and slice profile cache, empty to disable it.
+         */
+        public Builder srcmlCacheDirectory(String srcmlCacheDirectory) {
+            this.srcmlCacheDirectory = srcmlCacheDirectory;
+            return this;
+        }
+
+        /**
+         * File the {@link AnalysisMetrics} are written to as JSON after every analysis, empty to not write them.
+         */
+        public Builder metricsReport(String metricsReport) {
+            this.metricsReport = metricsReport;
+            return this;
+        }
+
+        /**
+         * Milliseconds slicing a single file may take, files that take longer are logged and left out of the
+         * analysis. 0 for no budget. With {@link #lazySlicing} it applies to each function sliced on demand.
+         */
+        public Builder fileBudgetMillis(int fileBudgetMillis) {
+            this.fileBudgetMillis = fileBudgetMillis;
+            return this;
+        }
+
+        /**
+         * Index the functions of C and C++ units and slice a function only once the analysis reaches it, instead
+         * of slicing every function up front. Has no effect when the analysis starts from C and C++ units. The
+         * {@link #fileBudgetMillis file budget} then applies to each function sliced on demand: a function over
+         * budget is left out and counted in the slice metrics, while the rest of its unit is kept. Slicing up
+         * front leaves out the whole unit. Read from {@code srcbuggy.slice.lazy}.
+         */
+        public Builder lazySlicing(boolean lazySlicing) {
+            this.lazySlicing = lazySlicing;
+            return this;
+        }
+
+        public Builder lookupString(List<String> lookupString) {
+            this.lookupString = lookupString;
+            return this;
+        }
+
+        /**
+         * Keep the resolved slice profiles and the violation paths of the session, so that
+         * {@link AnalysisSession#update} only redoes the part of the analysis a change can affect.
+         */
+        public Builder incremental(boolean incremental) {
+            this.incremental = incremental;
+            return this;
+        }
+
+        public AnalysisConfig build() {
+            return new AnalysisConfig(this);
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package com.noble;
+
+import com.noble.util.UnitStreamReader;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import org.w3c.dom.Node;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Time, allocation and counts of every phase of a scan, written as a JSON report and committed as JFR events.
+ * Work is recorded piece by piece from whichever thread does it, a phase adds up the time and the allocation of
+ * its pieces and spans from the start of the first one to the end of the last one. The cost of slicing and
+ * resolving every file is kept as well, to point out the files that dominate a scan.
+ */
+public final class AnalysisMetrics {
+
+    static final String SRCML = "srcml";
+    static final String PARSE = "parse";
+    static final String SLICE = "slice";
+    static final String RESOLVE = "resolve";
+    static final String GRAPH = "graph";
+    static final String PATHS = "paths";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean ALLOCATION_SUPPORTED = THREADS instanceof com.sun.management.ThreadMXBean &&
+            ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported() &&
+            ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final Map<String, FileCost> files = new ConcurrentHashMap<>();
+
+    AnalysisMetrics() {
+        for (String phase : Arrays.asList(SRCML, PARSE, SLICE, RESOLVE, GRAPH, PATHS)) {
+            phases.put(phase, new Phase(phase));
+        }
+    }
+
+    public Phase phase(String name) {
+        return phases.get(name);
+    }
+
+    public Collection<Phase> phases() {
+        return Collections.unmodifiableCollection(phases.values());
+    }
+
+    public FileCost file(String fileName) {
+        return files.computeIfAbsent(fileName, FileCost::new);
+    }
+
+    /**
+     * Starts the metrics of the next scan of an incremental session: phases start over, as do the time spent
+     * resolving every file and its edges, while the slicing costs of the files that are not sliced again stay.
+     */
+    void startScan() {
+        phases.replaceAll((name, phase) -> new Phase(name));
+        for (FileCost file : files.values()) {
+            file.resolveNanos.reset();
+            file.edges = 0;
+        }
+    }
+
+    /**
+     * Forgets the cost of a file that is no longer analyzed, unless it was left out for going over the budget.
+     */
+    void removeFile(String fileName) {
+        files.computeIfPresent(fileName, (name, cost) -> cost.overBudget ? cost : null);
+    }
+
+    /**
+     * Cost of every file sliced so far, the most expensive first.
+     */
+    public List<FileCost> fileCosts() {
+        List<FileCost> fileCosts = new ArrayList<>(files.values());
+        fileCosts.sort(Comparator.comparingLong(FileCost::costNanos).reversed().
+                thenComparing(FileCost::fileName));
+        return fileCosts;
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, 0 where the JVM does not track it.
+     */
+    static long threadAllocatedBytes() {
+        if (!ALLOCATION_SUPPORTED) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    static Stopwatch start() {
+        return new Stopwatch();
+    }
+
+    /**
+     * Hands the units of srcML output to the consumer. Time spent waiting for the output is recorded under
+     * {@link #SRCML}, building the unit DOMs under {@link #PARSE}, while the consumer's own work is left out.
+     */
+    void readUnits(InputStream srcmlOutput, BiConsumer<String, Node> unitConsumer)
+            throws XMLStreamException {
+        MeteredInputStream in = new MeteredInputStream(srcmlOutput);
+        long[] consumed = new long[2];
+        Stopwatch stopwatch = start();
+        UnitStreamReader.forEachUnit(in, (fileName, unitNode) -> {
+            Stopwatch consumer = start();
+            unitConsumer.accept(fileName, unitNode);
+            consumed[0] += consumer.elapsedNanos();
+            consumed[1] += consumer.allocatedBytes();
+            phase(PARSE).count("units", 1);
+        });
+        recordRead(stopwatch, in, consumed[0], consumed[1]);
+    }
+
+    static MeteredInputStream meter(InputStream in) {
+        return new MeteredInputStream(in);
+    }
+
+    /**
+     * Records a read of srcML output that started with the stopwatch, without the time and allocation of the
+     * work done on the units along the way.
+     */
+    void recordRead(Stopwatch stopwatch, MeteredInputStream in, long unitNanos, long unitBytes) {
+        long end = System.nanoTime();
+        Phase srcml = phase(SRCML);
+        srcml.add(stopwatch.startNanos, end, in.readNanos, 0);
+        srcml.count("bytes", in.bytes);
+        phase(PARSE).add(stopwatch.startNanos, end, end - stopwatch.startNanos - in.readNanos - unitNanos,
+                stopwatch.allocatedBytes() - unitBytes);
+    }
+
+    String toJson() {
+        StringBuilder json = new StringBuilder("{\n  \"phases\": [");
+        String separator = "\n";
+        for (Phase phase : phases.values()) {
+            json.append(separator).append("    {\"name\": \"").append(phase.name).append('"').
+                    append(", \"wallMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(phase.wallNanos())).
+                    append(", \"threadMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(phase.threadNanos())).
+                    append(", \"allocatedBytes\": ").append(phase.allocatedBytes()).
+                    append(", \"allocationMBPerSecond\": ").append(phase.allocationMBPerSecond()).
+                    append(", \"counts\": {");
+            String countSeparator = "";
+            for (Map.Entry<String, Long> count : phase.counts().entrySet()) {
+                json.append(countSeparator).append('"').append(count.getKey()).append("\": ").
+                        append(count.getValue());
+                countSeparator = ", ";
+            }
+            json.append("}}");
+            separator = ",\n";
+        }
+        json.append("\n  ],\n  \"files\": [");
+        separator = "\n";
+        for (FileCost file : fileCosts()) {
+            json.append(separator).append("    {\"name\": \"").append(escape(file.fileName)).append('"').
+                    append(", \"sliceMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(file.sliceNanos)).
+                    append(", \"resolveMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(file.resolveNanos())).
+                    append(", \"domNodes\": ").append(file.domNodes).
+                    append(", \"profiles\": ").append(file.profiles).
+                    append(", \"edges\": ").append(file.edges).
+                    append(", \"overBudget\": ").append(file.overBudget).append('}');
+            separator = ",\n";
+        }
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    escaped.append("\\\"");
+                    break;
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Commits a {@link PhaseEvent} for every phase, recorded when JFR runs with the event enabled, e.g. with
+     * {@code -XX:StartFlightRecording}.
+     */
+    void commitEvents() {
+        for (Phase phase : phases.values()) {
+            PhaseEvent event = new PhaseEvent();
+            if (!event.isEnabled()) {
+                return;
+            }
+            event.phase = phase.name;
+            event.wallTime = phase.wallNanos();
+            event.threadTime = phase.threadNanos();
+            event.allocated = phase.allocatedBytes();
+            event.commit();
+        }
+    }
+
+    public static final class Phase {
+        private final String name;
+        private final LongAdder threadNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAccumulator firstStart = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator lastEnd = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * From the start of the first piece of work to the end of the last one.
+         */
+        public long wallNanos() {
+            long start = firstStart.get();
+            return start == Long.MAX_VALUE ? 0 : lastEnd.get() - start;
+        }
+
+        /**
+         * Time of every piece of work added up, more than the wall time when pieces ran on several threads.
+         */
+        public long threadNanos() {
+            return threadNanos.sum();
+        }
+
+        public long allocatedBytes() {
+            return allocatedBytes.sum();
+        }
+
+        public long allocationMBPerSecond() {
+            long nanos = threadNanos();
+            return nanos == 0 ? 0 : allocatedBytes() * 1000 / nanos;
+        }
+
+        public Map<String, Long> counts() {
+            Map<String, Long> sortedCounts = new TreeMap<>();
+            counts.forEach((countName, count) -> sortedCounts.put(countName, count.sum()));
+            return sortedCounts;
+        }
+
+        void add(Stopwatch stopwatch) {
+            long end = System.nanoTime();
+            add(stopwatch.startNanos, end, end - stopwatch.startNanos, stopwatch.allocatedBytes());
+        }
+
+        void add(long startNanos, long endNanos, long workNanos, long workAllocatedBytes) {
+            firstStart.accumulate(startNanos);
+            lastEnd.accumulate(endNanos);
+            threadNanos.add(workNanos);
+            allocatedBytes.add(workAllocatedBytes);
+        }
+
+        void count(String countName, long delta) {
+            counts.computeIfAbsent(countName, key -> new LongAdder()).add(delta);
+        }
+
+        /**
+         * Sets a count that describes the current state rather than adding up.
+         */
+        void set(String countName, long value) {
+            LongAdder count = counts.computeIfAbsent(countName, key -> new LongAdder());
+            count.reset();
+            count.add(value);
+        }
+    }
+
+    /**
+     * Slicing time, DOM size and slice profiles of one file, the time spent resolving the calls of its slice
+     * profiles and the edges of the dependency graph that start at its slice variables.
+     */
+    public static final class FileCost {
+        private final String fileName;
+        private volatile long sliceNanos;
+        private volatile int domNodes;
+        private volatile int profiles;
+        private volatile boolean overBudget;
+        private final LongAdder resolveNanos = new LongAdder();
+        private volatile long edges;
+
+        private FileCost(String fileName) {
+            this.fileName = fileName;
+        }
+
+        public String fileName() {
+            return fileName;
+        }
+
+        public long sliceNanos() {
+            return sliceNanos;
+        }
+
+        public int domNodes() {
+            return domNodes;
+        }
+
+        public int profiles() {
+            return profiles;
+        }
+
+        /**
+         * True if slicing the file took longer than the budget and it was left out of the analysis.
+         */
+        public boolean overBudget() {
+            return overBudget;
+        }
+
+        public long resolveNanos() {
+            return resolveNanos.sum();
+        }
+
+        public long edges() {
+            return edges;
+        }
+
+        public long costNanos() {
+            return sliceNanos + resolveNanos();
+        }
+
+        /**
+         * Records the file as sliced anew, which also forgets the time spent resolving its old slice profiles.
+         */
+        void sliced(long sliceNanos, int domNodes, int profiles, boolean overBudget) {
+            this.sliceNanos = sliceNanos;
+            this.domNodes = domNodes;
+            this.profiles = profiles;
+            this.overBudget = overBudget;
+            this.resolveNanos.reset();
+        }
+
+        void resolved(long nanos) {
+            resolveNanos.add(nanos);
+        }
+
+        void edges(long edges) {
+            this.edges = edges;
+        }
+    }
+
+    /**
+     * Time and allocation of the current thread since the stopwatch started.
+     */
+    static final class Stopwatch {
+        private final long startNanos = System.nanoTime();
+        private final long startBytes = threadAllocatedBytes();
+
+        long elapsedNanos() {
+            return System.nanoTime() - startNanos;
+        }
+
+        long allocatedBytes() {
+            return threadAllocatedBytes() - startBytes;
+        }
+    }
+
+    /**
+     * Counts the bytes read and the time spent blocked reading them.
+     */
+    static final class MeteredInputStream extends FilterInputStream {
+        private long readNanos;
+        private long bytes;
+
+        private MeteredInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int read = super.read();
+            readNanos += System.nanoTime() - start;
+            if (read >= 0) {
+                bytes++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            int read = super.read(buffer, offset, length);
+            readNanos += System.nanoTime() - start;
+            if (read > 0) {
+                bytes += read;
+            }
+            return read;
+        }
+    }
+
+    @Name("com.noble.AnalysisPhase")
+    @Label("Analysis Phase")
+    @Category("srcBuggy")
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Wall Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long wallTime;
+
+        @Label("Thread Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long threadTime;
+
+        @Label("Allocated")
+        @DataAmount(DataAmount.BYTES)
+        long allocated;
+    }
+}
@@ -0,0 +1,949 @@
+package com.noble;
+
+import com.noble.models.*;
+import com.noble.util.Position;
+import com.noble.util.SrcmlCache;
+import org.apache.commons.io.FileUtils;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.nio.dot.DOTExporter;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static com.noble.util.XmlUtil.*;
+
+/**
+ * One scan of a project: the slice profiles of its units, the dependency graph built from them and the
+ * violations found on it. All of it is held by the instance, so a JVM can run any number of scans, one after
+ * the other or at the same time. A session is used by one thread at a time. It slices first and
+ * {@link #analyze()}s once, an {@link AnalysisConfig#incremental()} session then stays alive for the next scans
+ * of the same project and brings them up to date with {@link #update(Map, Collection)}, as {@link ScanDaemon}
+ * does.
+ */
+public final class AnalysisSession {
+
+    private static final List<String> BUFFER_ERROR_FUNCTIONS = Arrays.asList("strcat", "strdup", "strncat", "strcmp",
+            "strncmp", "strcpy", "strncpy", "strlen", "strchr", "strrchr", "index", "rindex", "strpbrk", "strspn",
+            "strcspn", "strstr", "strtok", "memccpy", "memchr", "memmove", "memcpy", "memcmp", "memset", "bcopy",
+            "bzero", "bcmp");
+    private static final String JNI_NATIVE_METHOD_MODIFIER = "native";
+    private static final int REPORTED_FILES = 10;
+
+    private final AnalysisConfig config;
+    private final long start;
+//  files in name order, the order the graph is built in does not depend on how the files were added or removed
+    private final TreeMap<String, SliceProfilesInfo> sliceProfilesInfo = new TreeMap<>();
+    private final TreeMap<String, SliceProfilesInfo> javaSliceProfilesInfo = new TreeMap<>();
+    private final TreeMap<String, SliceProfilesInfo> cppSliceProfilesInfo = new TreeMap<>();
+    private DependencyGraph DG = new DependencyGraph();
+    private Hashtable<EnclNamePosTuple, ArrayList<String>> detectedViolations = new Hashtable<>();
+    private final VisitedProfiles analyzedProfiles = new VisitedProfiles();
+    private final ConcurrentHashMap<SliceProfile, ProfilePlan> profilePlans = new ConcurrentHashMap<>();
+//  shortest path from a source to every violation it reaches, kept between updates of an incremental session
+    private final Map<EnclNamePosTuple, Map<EnclNamePosTuple, List<EnclNamePosTuple>>> violationPaths =
+            new HashMap<>();
+    private FunctionIndex javaFunctionIndex;
+    private FunctionIndex cppFunctionIndex;
+    private final AnalysisMetrics metrics = new AnalysisMetrics();
+//  the metrics hold a reported scan, the next piece of work starts those of a new one
+    private boolean scanReported;
+
+    public AnalysisSession(AnalysisConfig config) {
+        this.config = config;
+        this.start = System.currentTimeMillis();
+    }
+
+    /**
+     * Metrics of the current scan, slicing included, or of the last one once it is reported. Files that are not
+     * sliced again keep the slicing cost of an earlier scan.
+     */
+    public AnalysisMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Starts the metrics of a new scan once the last one is reported. Slicing and {@link #update(Map, Collection)}
+     * do it themselves, callers that slice through {@link #metrics()} do it first.
+     */
+    public void startScan() {
+        if (scanReported) {
+            metrics.startScan();
+            scanReported = false;
+        }
+    }
+
+    /**
+     * True if the functions of C and C++ units are sliced once the analysis reaches them, which only pays off
+     * when it starts from Java.
+     */
+    boolean slicesOnDemand() {
+        return config.lazySlicing() && !config.startFromCpp();
+    }
+
+    /**
+     * Slices every unit of a srcML archive.
+     */
+    public void slice(InputStream srcmlOutput) throws IOException, SAXException, ParserConfigurationException,
+            XMLStreamException, InterruptedException, ExecutionException {
+        startScan();
+        if (config.streamUnits()) {
+            System.out.println("Streaming XML units from srcML ...");
+            try (SliceScheduler sliceScheduler = new SliceScheduler(config.sliceParallelism(), metrics,
+                    config.fileBudgetMillis(), slicesOnDemand())) {
+                metrics.readUnits(srcmlOutput, sliceScheduler::submit);
+                sliceScheduler.collect(sliceProfilesInfo);
+            }
+        } else {
+            System.out.println("Converted to XML, beginning parsing ...");
+            DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            AnalysisMetrics.MeteredInputStream in = AnalysisMetrics.meter(srcmlOutput);
+            AnalysisMetrics.Stopwatch parse = AnalysisMetrics.start();
+            Document document = documentBuilder.parse(new InputSource(
+                    new InputStreamReader(in, StandardCharsets.UTF_8)));
+            metrics.recordRead(parse, in, 0, 0);
+            for (Node unitNode : asList(document.getElementsByTagName("unit"))) {
+                Node fileName = unitNode.getAttributes().getNamedItem("filename");
+                if (fileName != null) {
+                    String sourceFilePath = fileName.getNodeValue();
+                    if (unitNode.getNodeType() != Node.ELEMENT_NODE) {
+                        continue;
+                    }
+                    AnalysisMetrics.Stopwatch slice = AnalysisMetrics.start();
+//                  the units share a document, which the planning threads must not slice from at the same time
+                    SliceProfilesInfo profilesInfo = SliceScheduler.slice(sourceFilePath, unitNode,
+                            TimeUnit.MILLISECONDS.toNanos(config.fileBudgetMillis()),
+                            slicesOnDemand() && config.analysisParallelism() <= 1);
+                    SliceScheduler.record(metrics, slice, sourceFilePath, unitNode, profilesInfo);
+                    if (profilesInfo != null) {
+                        sliceProfilesInfo.put(sourceFilePath, profilesInfo);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts the project with srcML in batches of {@link AnalysisConfig#srcmlBatchSize()} files and slices the
+     * units as they come, going through the cache when one is configured.
+     */
+    public void slice(Path projectLocation, String srcmlExecutable)
+            throws IOException, InterruptedException, ExecutionException {
+        startScan();
+        System.out.println("Converting batches of " + config.srcmlBatchSize() + " files on " +
+                config.srcmlProcesses() + " srcML processes ...");
+        SrcmlCache srcmlCache = config.srcmlCacheDirectory().isEmpty() ? null :
+                new SrcmlCache(Path.of(config.srcmlCacheDirectory()), SrcmlCache.srcmlVersion(srcmlExecutable));
+        try (SliceScheduler sliceScheduler = new SliceScheduler(config.sliceParallelism(), srcmlCache, metrics,
+                config.fileBudgetMillis(), slicesOnDemand())) {
+            new SrcmlBatchRunner(srcmlExecutable, config.srcmlProcesses(), config.srcmlBatchSize(), srcmlCache,
+                    metrics).convert(projectLocation, sliceScheduler::submit);
+            sliceScheduler.collect(sliceProfilesInfo);
+        }
+    }
+
+    /**
+     * Builds the dependency graph over everything sliced so far, prints the violations found on it and returns
+     * them with the paths that reach them.
+     */
+    public Hashtable<String, Set<List<EnclNamePosTuple>>> analyze()
+            throws IOException, InterruptedException, ExecutionException {
+        indexSliceProfiles();
+        buildDependencyGraph();
+        return report(start);
+    }
+
+    /**
+     * Replaces the slice profiles of the changed files, drops those of the removed files and brings the graph and
+     * the violations up to date. Only the profiles that read one of these files are resolved again, the others
+     * replay the steps they resolved before, so the graph is the one a new session would build for the same
+     * files. Paths are searched again only from the sources that reach a vertex whose successors or violations
+     * changed. The session must be {@link AnalysisConfig#incremental()} and analyzed already.
+     */
+    public Hashtable<String, Set<List<EnclNamePosTuple>>> update(Map<String, SliceProfilesInfo> changedFiles,
+                                                               Collection<String> removedFiles)
+            throws IOException, InterruptedException, ExecutionException {
+        if (!config.incremental()) {
+            throw new IllegalStateException("Session is not incremental");
+        }
+        startScan();
+        long updateStart = System.currentTimeMillis();
+        Set<String> files = new HashSet<>(removedFiles);
+        files.addAll(changedFiles.keySet());
+//      names a plan may have resolved to one of the files, before and after the change
+        Set<String> functionNames = new HashSet<>();
+        boolean filesAdded = false;
+        for (String filePath : removedFiles) {
+            SliceProfilesInfo removed = sliceProfilesInfo.remove(filePath);
+            if (removed != null) {
+                addFunctionNames(removed, functionNames);
+            }
+            javaSliceProfilesInfo.remove(filePath);
+            cppSliceProfilesInfo.remove(filePath);
+            metrics.removeFile(filePath);
+        }
+        for (Map.Entry<String, SliceProfilesInfo> changedFile : changedFiles.entrySet()) {
+            String filePath = changedFile.getKey();
+            SliceProfilesInfo replaced = sliceProfilesInfo.put(filePath, changedFile.getValue());
+            if (replaced != null) {
+                addFunctionNames(replaced, functionNames);
+            } else {
+                filesAdded = true;
+            }
+            addFunctionNames(changedFile.getValue(), functionNames);
+            if (filePath.endsWith(".java")) {
+                javaSliceProfilesInfo.put(filePath, changedFile.getValue());
+            } else {
+                cppSliceProfilesInfo.put(filePath, changedFile.getValue());
+            }
+        }
+        javaFunctionIndex = new FunctionIndex(javaSliceProfilesInfo);
+        cppFunctionIndex = new FunctionIndex(cppSliceProfilesInfo);
+
+        int plans = profilePlans.size();
+        invalidatePlans(files, functionNames, filesAdded);
+        System.out.println("Updated " + files.size() + " files, resolving " + (plans - profilePlans.size()) +
+                " of " + plans + " slice profiles again");
+        DependencyGraph lastGraph = DG;
+        Hashtable<EnclNamePosTuple, ArrayList<String>> lastViolations = detectedViolations;
+        DG = new DependencyGraph();
+        detectedViolations = new Hashtable<>();
+        analyzedProfiles.clear();
+        buildDependencyGraph();
+        keepUnchangedPaths(lastGraph, lastViolations);
+        return report(updateStart);
+    }
+
+    private Hashtable<String, Set<List<EnclNamePosTuple>>> report(long start)
+            throws IOException, InterruptedException, ExecutionException {
+        System.out.println("Analyzed " + analyzedProfiles.visits() + " slice profiles, skipped " +
+                analyzedProfiles.skippedRevisits() + " revisits");
+
+        long mid = System.currentTimeMillis();
+        System.out.println("Completed building slice profiles in " + (mid - start) / 1000 + "s");
+        if (config.exportGraph()) {
+            exportGraph(DG.toJGraphT());
+        }
+        Hashtable<String, Set<List<EnclNamePosTuple>>> violations = printViolations(start);
+        AnalysisMetrics.Phase graph = metrics.phase(AnalysisMetrics.GRAPH);
+        graph.set("vertices", DG.vertexCount());
+        graph.set("edges", DG.edgeCount());
+        graph.set("violatedVertices", detectedViolations.size());
+        graph.set("visits", analyzedProfiles.visits());
+        graph.set("skippedRevisits", analyzedProfiles.skippedRevisits());
+        printFunctionsSlicedOnDemand();
+        printFileCosts();
+        if (!config.metricsReport().isEmpty()) {
+            Files.writeString(Path.of(config.metricsReport()), metrics.toJson());
+        }
+        metrics.commitEvents();
+        scanReported = true;
+        return violations;
+    }
+
+    private void printFunctionsSlicedOnDemand() {
+        long functions = 0;
+        long slicedFunctions = 0;
+        long overBudgetFunctions = 0;
+        for (SliceProfilesInfo profilesInfo : cppSliceProfilesInfo.values()) {
+            if (profilesInfo.functionSlicer != null) {
+                functions += profilesInfo.functionSlicer.functionCount();
+                slicedFunctions += profilesInfo.functionSlicer.slicedFunctionCount();
+                overBudgetFunctions += profilesInfo.functionSlicer.overBudgetFunctionCount();
+            }
+        }
+        if (functions == 0) {
+            return;
+        }
+        AnalysisMetrics.Phase slice = metrics.phase(AnalysisMetrics.SLICE);
+        slice.set("lazyFunctions", functions);
+        slice.set("slicedLazyFunctions", slicedFunctions);
+        slice.set("overBudgetLazyFunctions", overBudgetFunctions);
+        System.out.println("Sliced " + slicedFunctions + " of " + functions + " C/C++ functions on demand (" +
+                overBudgetFunctions + " over budget)");
+    }
+
+    /**
+     * Counts the edges every file contributes to the graph and prints the files that cost the most to slice and
+     * resolve.
+     */
+    private void printFileCosts() {
+        Map<String, Long> fileEdges = new HashMap<>();
+        for (int vertexId = 0; vertexId < DG.vertexCount(); vertexId++) {
+            fileEdges.merge(DG.vertex(vertexId).fileName(), (long) DG.successorCount(vertexId), Long::sum);
+        }
+        fileEdges.forEach((fileName, edges) -> metrics.file(fileName).edges(edges));
+        List<AnalysisMetrics.FileCost> fileCosts = metrics.fileCosts();
+        System.out.println("Most expensive files:");
+        for (AnalysisMetrics.FileCost file : fileCosts.subList(0, Math.min(REPORTED_FILES, fileCosts.size()))) {
+            System.out.println("  " + TimeUnit.NANOSECONDS.toMillis(file.costNanos()) + "ms " + file.fileName() +
+                    " (" + file.domNodes() + " nodes sliced into " + file.profiles() + " slice profiles in " +
+                    TimeUnit.NANOSECONDS.toMillis(file.sliceNanos()) + "ms" +
+                    (file.overBudget() ? " over budget" : "") + ", resolved in " +
+                    TimeUnit.NANOSECONDS.toMillis(file.resolveNanos()) + "ms, " + file.edges() + " edges)");
+        }
+    }
+
+    private static void addFunctionNames(SliceProfilesInfo profilesInfo, Set<String> functionNames) {
+        profilesInfo.functions.keySet().forEach(functionNamePos -> functionNames.add(functionNamePos.getName()));
+        functionNames.addAll(profilesInfo.functionDeclMap.keySet());
+    }
+
+    /**
+     * Drops the plans that read one of the files: plans of their profiles, plans with a dependency in them and
+     * plans that resolved a name one of them declares. Once files are added, the order of the files of the
+     * function index may change, which also drops the plans whose dependencies span several files.
+     */
+    private void invalidatePlans(Set<String> files, Set<String> functionNames, boolean filesAdded) {
+        List<String> lowerCaseNames = new ArrayList<>();
+        functionNames.forEach(functionName -> lowerCaseNames.add(functionName.toLowerCase()));
+        profilePlans.entrySet().removeIf(entry -> entry.getValue().reads(entry.getKey(), files, functionNames,
+                lowerCaseNames, filesAdded));
+    }
+
+    /**
+     * Forgets the violation paths of the sources that reach a vertex that is new, has other successors or other
+     * violations than in the last graph. Every other source reaches the same subgraph as before, its paths stay.
+     */
+    private void keepUnchangedPaths(DependencyGraph lastGraph,
+                                    Hashtable<EnclNamePosTuple, ArrayList<String>> lastViolations) {
+        boolean[] changed = new boolean[DG.vertexCount()];
+        for (int vertexId = 0; vertexId < DG.vertexCount(); vertexId++) {
+            EnclNamePosTuple vertex = DG.vertex(vertexId);
+            int lastId = lastGraph.vertexId(vertex);
+            changed[vertexId] = lastId < 0 || !DG.sameSuccessors(vertexId, lastGraph, lastId) ||
+                    !Objects.equals(detectedViolations.get(vertex), lastViolations.get(vertex));
+        }
+        boolean[] reachingChange = new ReachabilityEngine(DG).reaching(changed);
+        violationPaths.keySet().removeIf(source -> {
+            int sourceId = DG.vertexId(source);
+            return sourceId < 0 || reachingChange[sourceId];
+        });
+    }
+
+    void indexSliceProfiles() {
+        for (String sliceKey : sliceProfilesInfo.keySet()) {
+            if (sliceKey.endsWith(".java")) {
+//                    && !key.contains("/test/")
+                javaSliceProfilesInfo.put(sliceKey, sliceProfilesInfo.get(sliceKey));
+            } else {
+                cppSliceProfilesInfo.put(sliceKey, sliceProfilesInfo.get(sliceKey));
+            }
+        }
+        javaFunctionIndex = new FunctionIndex(javaSliceProfilesInfo);
+        cppFunctionIndex = new FunctionIndex(cppSliceProfilesInfo);
+    }
+
+    void buildDependencyGraph() throws InterruptedException, ExecutionException {
+        Map<String, SliceProfilesInfo> startProfilesInfo;
+        if (config.startFromCpp()) {
+//            start from cpp slice profiles
+            System.out.println("Beginning test...");
+            startProfilesInfo = cppSliceProfilesInfo;
+        } else {
+            startProfilesInfo = javaSliceProfilesInfo;
+        }
+        try {
+            planSliceProfiles(startProfilesInfo, config.analysisParallelism());
+            AnalysisMetrics.Stopwatch stopwatch = AnalysisMetrics.start();
+            for (SliceProfilesInfo currentSlice : startProfilesInfo.values()) {
+                for (SliceProfile profile : currentSlice.sliceProfiles.values()) {
+                    if (analyzedProfiles.skip(profile)) {
+                        continue;
+                    }
+                    analyzeSliceProfile(profile, startProfilesInfo);
+                }
+            }
+            metrics.phase(AnalysisMetrics.GRAPH).add(stopwatch);
+        } finally {
+            if (!config.incremental()) {
+                profilePlans.clear();
+            }
+        }
+    }
+
+    /**
+     * Adds the slice profiles of units the caller sliced itself, they are analyzed together with the units the
+     * session slices.
+     */
+    public void loadSliceProfiles(Map<String, SliceProfilesInfo> profilesInfo) {
+        sliceProfilesInfo.putAll(profilesInfo);
+    }
+
+    DependencyGraph dependencyGraph() {
+        return DG;
+    }
+
+    private void exportGraph(Graph<EnclNamePosTuple, DefaultEdge> graph) throws IOException {
+        System.out.println("Exporting graph...");
+        DOTExporter<EnclNamePosTuple, DefaultEdge> exporter = new DOTExporter<>(EnclNamePosTuple::toString);
+        StringWriter writer = new StringWriter();
+        exporter.exportGraph(graph, writer);
+        final File file = new File(FileSystems.getDefault().getPath(".").toString(), "graph.dot");
+        FileUtils.writeStringToFile(file, writer.toString(), Charset.defaultCharset());
+    }
+
+//    public static void inspectXML(String xmlSource)
+//            throws IOException {
+//        java.io.FileWriter fw = new java.io.FileWriter("temp.xml");
+//        fw.write(xmlSource);
+//        fw.close();
+//    }
+
+    @SuppressWarnings("unused")
+    public void bfsSolution(EnclNamePosTuple source, List<String> lookup) {
+//      a path to every vertex reachable from the source, in the order the search reaches them
+        List<List<EnclNamePosTuple>> completePaths =
+                new ReachabilityEngine(DG, metrics.phase(AnalysisMetrics.PATHS)).pathsFrom(source);
+        for (List<EnclNamePosTuple> smallPath : completePaths) {
+            if (containsAllWords(smallPath.toString(), lookup)) {
+                System.out.println(smallPath);
+            }
+        }
+    }
+
+    public static boolean containsAllWords(String word, List<String> keywords) {
+        for (String k : keywords) {
+            if (!word.contains(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Hashtable<String, Set<List<EnclNamePosTuple>>> printViolations(long start)
+            throws InterruptedException, ExecutionException {
+        Hashtable<String, Set<List<EnclNamePosTuple>>> violationsToPrint = new Hashtable<>();
+        ArrayList<EnclNamePosTuple> sourceNodes = new ArrayList<>();
+        for (int vertexId = 0; vertexId < DG.vertexCount(); vertexId++) {
+            EnclNamePosTuple node = DG.vertex(vertexId);
+            if (DG.inDegree(vertexId) == 0 && node.fileName().endsWith(".java")) {
+                sourceNodes.add(node);
+            }
+        }
+        int violationsCount = 0;
+        if (config.skipViolations()) {
+            for (EnclNamePosTuple sourceNode : sourceNodes) {
+                bfsSolution(sourceNode, config.lookupString());
+            }
+        } else {
+            for (Map<EnclNamePosTuple, List<EnclNamePosTuple>> sourcePaths : findViolationPaths(sourceNodes)) {
+                for (Map.Entry<EnclNamePosTuple, List<EnclNamePosTuple>> violationPath : sourcePaths.entrySet()) {
+                    List<EnclNamePosTuple> vertexList = violationPath.getValue();
+                    ArrayList<String> violations = detectedViolations.get(violationPath.getKey());
+                    violations.forEach(violation -> {
+                        Set<List<EnclNamePosTuple>> currentArray;
+                        if (violationsToPrint.containsKey(violation)) {
+                            currentArray = violationsToPrint.get(violation);
+                        } else {
+                            currentArray = new HashSet<>();
+                        }
+                        currentArray.add(vertexList);
+                        violationsToPrint.put(violation, currentArray);
+                    });
+                    violationsCount = violationsCount + violations.size();
+                }
+            }
+        }
+
+        violationsToPrint.forEach((key, violations) -> {
+            violations.forEach(violation -> {
+                System.err.print("Possible out-of-bounds operation path : ");
+                StringBuilder vPath = new StringBuilder();
+                int size = violation.size() - 1;
+                if (key.startsWith("Buffer")) {
+                    size = violation.size();
+                }
+                for (int i = 0; i < size; i++) {
+                    EnclNamePosTuple x = violation.get(i);
+                    vPath.append(x).append(" -> ");
+                }
+                System.err.println(vPath);
+            });
+            System.err.println(key + "\n");
+        });
+
+        System.out.println("No of files analyzed " +
+                (javaSliceProfilesInfo.size() + cppSliceProfilesInfo.size()));
+        System.out.println("Detected violations " + violationsCount);
+        long end = System.currentTimeMillis();
+        System.out.println("Completed analysis in " + (end - start) / 1000 + "s");
+        return violationsToPrint;
+    }
+
+    /**
+     * Shortest path from every source to every violation it reaches, in the order of the sources. Sources with
+     * paths kept from the last update are not searched again.
+     */
+    private List<Map<EnclNamePosTuple, List<EnclNamePosTuple>>> findViolationPaths(List<EnclNamePosTuple> sourceNodes)
+            throws InterruptedException, ExecutionException {
+        List<EnclNamePosTuple> violatedNodes = new ArrayList<>(detectedViolations.keySet());
+        List<EnclNamePosTuple> searchedNodes = new ArrayList<>();
+        for (EnclNamePosTuple sourceNode : sourceNodes) {
+            if (!violationPaths.containsKey(sourceNode)) {
+                searchedNodes.add(sourceNode);
+            }
+        }
+        metrics.phase(AnalysisMetrics.PATHS).count("reusedSources", sourceNodes.size() - searchedNodes.size());
+        List<List<List<EnclNamePosTuple>>> requiredPaths =
+                new ReachabilityEngine(DG, metrics.phase(AnalysisMetrics.PATHS)).
+                shortestPaths(searchedNodes, violatedNodes, config.analysisParallelism());
+        Map<EnclNamePosTuple, Map<EnclNamePosTuple, List<EnclNamePosTuple>>> searchedPaths = new HashMap<>();
+        for (int s = 0; s < searchedNodes.size(); s++) {
+            Map<EnclNamePosTuple, List<EnclNamePosTuple>> sourcePaths = new LinkedHashMap<>();
+            for (int i = 0; i < violatedNodes.size(); i++) {
+                List<EnclNamePosTuple> vertexList = requiredPaths.get(s).get(i);
+                if (vertexList != null) {
+                    sourcePaths.put(violatedNodes.get(i), vertexList);
+                }
+            }
+            searchedPaths.put(searchedNodes.get(s), sourcePaths);
+        }
+        if (config.incremental()) {
+            violationPaths.putAll(searchedPaths);
+        }
+        List<Map<EnclNamePosTuple, List<EnclNamePosTuple>>> paths = new ArrayList<>(sourceNodes.size());
+        for (EnclNamePosTuple sourceNode : sourceNodes) {
+            paths.add(searchedPaths.containsKey(sourceNode) ? searchedPaths.get(sourceNode) :
+                    violationPaths.get(sourceNode));
+        }
+        return paths;
+    }
+
+    /**
+     * Analyzes the profile and everything it reaches. The walk keeps an explicit stack with the remaining steps of
+     * every profile under analysis instead of recursing, so its depth does not depend on the length of data flow
+     * chains. A step may hand back a profile, which is analyzed before the steps after it, in the order the
+     * recursive walk did.
+     */
+    private void analyzeSliceProfile(SliceProfile profile,
+                                     Map<String, SliceProfilesInfo> rawProfilesInfo) {
+        ArrayDeque<Iterator<AnalysisStep>> frontier = new ArrayDeque<>();
+        frontier.push(expandSliceProfile(profile, rawProfilesInfo));
+        while (!frontier.isEmpty()) {
+            Iterator<AnalysisStep> steps = frontier.peek();
+            if (!steps.hasNext()) {
+                frontier.pop();
+                continue;
+            }
+            PendingProfile pendingProfile = steps.next().run();
+            if (pendingProfile != null) {
+                frontier.push(expandSliceProfile(pendingProfile.profile, pendingProfile.profilesInfo));
+            }
+        }
+    }
+
+    private Iterator<AnalysisStep> expandSliceProfile(SliceProfile profile,
+                                                      Map<String, SliceProfilesInfo> rawProfilesInfo) {
+        analyzedProfiles.visit(profile);
+        ProfilePlan plan = profilePlans.get(profile);
+        if (plan == null || plan.profilesInfo != rawProfilesInfo) {
+            plan = planSliceProfile(profile, rawProfilesInfo);
+            if (config.incremental()) {
+                profilePlans.putIfAbsent(profile, plan);
+            }
+        }
+        return plan.steps.iterator();
+    }
+
+    /**
+     * Plans every profile reachable from the profiles of {@code profilesInfo} on {@code parallelism} threads,
+     * ahead of the walk. Planning only reads the slice profiles and function indexes, every profile is planned
+     * once no matter how many threads reach it. The walk then only applies the planned steps to the graph, in the
+     * serial order, so the graph and the violations do not depend on how the planning was scheduled. With a
+     * single thread the profiles are planned on the caller's, which keeps the resolution apart from the walk.
+     */
+    private void planSliceProfiles(Map<String, SliceProfilesInfo> profilesInfo, int parallelism)
+            throws InterruptedException, ExecutionException {
+        List<SliceProfile> roots = new ArrayList<>();
+        profilesInfo.values().forEach(currentSlice -> roots.addAll(currentSlice.sliceProfiles.values()));
+        if (parallelism <= 1) {
+            roots.forEach(profile -> planReachableProfiles(new PendingProfile(profile, profilesInfo)));
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> roots.parallelStream().forEach(profile ->
+                    planReachableProfiles(new PendingProfile(profile, profilesInfo)))).get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void planReachableProfiles(PendingProfile root) {
+        if (profilePlans.containsKey(root.profile)) {
+            return;
+        }
+        AnalysisMetrics.Stopwatch stopwatch = AnalysisMetrics.start();
+        ArrayDeque<PendingProfile> pendingProfiles = new ArrayDeque<>();
+        pendingProfiles.push(root);
+        while (!pendingProfiles.isEmpty()) {
+            PendingProfile pendingProfile = pendingProfiles.pop();
+            if (profilePlans.containsKey(pendingProfile.profile)) {
+                continue;
+            }
+            ProfilePlan plan = planSliceProfile(pendingProfile.profile, pendingProfile.profilesInfo);
+            if (profilePlans.putIfAbsent(pendingProfile.profile, plan) == null) {
+                plan.dependencies.forEach(pendingProfiles::push);
+            }
+        }
+        metrics.phase(AnalysisMetrics.RESOLVE).add(stopwatch);
+    }
+
+    private ProfilePlan planSliceProfile(SliceProfile profile,
+                                         Map<String, SliceProfilesInfo> rawProfilesInfo) {
+        long planStart = System.nanoTime();
+        ProfilePlan plan = new ProfilePlan(rawProfilesInfo);
+        metrics.phase(AnalysisMetrics.RESOLVE).count("profiles", 1);
+        if (profile.functionName.equals("GLOBAL")) {
+//          every function of the unit may add to a global
+            rawProfilesInfo.get(profile.fileName).sliceAllFunctions();
+        }
+
+//      step-01 : analyse cfunctions of the slice variable
+
+        for (CFunction cfunction : profile.cfunctions) {
+            String cfunctionName = cfunction.getName();
+            int argPosIndex = cfunction.getArgPosIndex();
+            long cfunctionPos = cfunction.getPosition();
+            String enclFunctionName = cfunction.getEnclFunctionName();
+            FunctionScope enclFunction = cfunction.getEnclFunction();
+            EnclNamePosTuple cfunctionNamePosTuple = new EnclNamePosTuple(profile.varName, enclFunctionName,
+                    profile.fileName, profile.definedPosition);
+            analyzeCfunction(cfunctionName, cfunctionPos, argPosIndex, profile.typeName, enclFunction,
+                    cfunctionNamePosTuple, rawProfilesInfo, plan);
+        }
+        EnclNamePosTuple enclNamePosTuple = new EnclNamePosTuple(profile.varName, profile.functionName,
+                profile.fileName, profile.definedPosition);
+        plan.steps.add(() -> {
+            DG.addVertex(enclNamePosTuple);
+            return null;
+        });
+
+//      step-02 : analyze data dependent vars of the slice variable
+
+        for (NamePos dependentVar : profile.dependentVars) {
+            String dvarName = dependentVar.getName();
+            String dvarEnclFunctionName = dependentVar.getType();
+            long dvarPos = dependentVar.getPos();
+            SliceProfile dependentProfile = rawProfilesInfo.get(profile.fileName).profileOf(dvarName, dvarPos,
+                    dvarEnclFunctionName, profile.fileName);
+            if (dependentProfile == null) {
+//              not capturing struct/class var assignments
+                continue;
+            }
+//          analyzed again whenever a new edge reaches it, even if it was analyzed before
+            plan.addDependency(enclNamePosTuple, dependentProfile, rawProfilesInfo, false);
+        }
+
+//      step-03 : analyze if given function node is a native method
+
+        if (!profile.functionName.equals("GLOBAL") && profile.cfunctions.size() < 1) {
+            FunctionSignature enclFunctionSignature =
+                    rawProfilesInfo.get(profile.fileName).signatureOf(profile.function);
+            if (enclFunctionSignature.hasSpecifier(JNI_NATIVE_METHOD_MODIFIER)) {
+                analyzeNativeFunction(profile, rawProfilesInfo, enclFunctionSignature, enclNamePosTuple, plan);
+            }
+        }
+
+//      step-04 : check and add buffer reads and writes for this profile
+
+        if (config.checkBuffer() && !profile.fileName.endsWith(".java")) {
+            List<String> bufferWrites = findBufferWrites(profile);
+            if (!bufferWrites.isEmpty()) {
+                plan.steps.add(() -> {
+                    ArrayList<String> violations;
+                    if (detectedViolations.containsKey(enclNamePosTuple)) {
+                        violations = new ArrayList<>(detectedViolations.get(enclNamePosTuple));
+                    } else {
+                        violations = new ArrayList<>();
+                    }
+                    violations.addAll(bufferWrites);
+                    detectedViolations.put(enclNamePosTuple, violations);
+                    return null;
+                });
+            }
+        }
+        metrics.file(profile.fileName).resolved(System.nanoTime() - planStart);
+        return plan;
+    }
+
+    private static List<String> findBufferWrites(SliceProfile profile) {
+        List<String> bufferWrites = new ArrayList<>();
+        for (SliceVariableAccess varAccess : profile.usedPositions) {
+            for (DataTuple access : varAccess.writePositions) {
+                if (DataAccessType.BUFFER_WRITE != access.accessType) {
+                    continue;
+                }
+                bufferWrites.add("Buffer write at " + Position.format(access.accessPos));
+            }
+        }
+        return bufferWrites;
+    }
+
+    private void analyzeCfunction(String cfunctionName, long cfunctionPos, int argPosIndex,
+                                  String varTypeName, FunctionScope enclFunction,
+                                  EnclNamePosTuple enclNamePosTuple,
+                                  Map<String, SliceProfilesInfo> sliceProfilesInfo, ProfilePlan plan) {
+        CallSiteTable callSites = sliceProfilesInfo.get(enclNamePosTuple.fileName()).callSitesOf(enclFunction);
+        LinkedList<SliceProfile> dependentSliceProfiles = findDependentSliceProfiles(cfunctionName,
+                argPosIndex, varTypeName, enclFunction, callSites, sliceProfilesInfo);
+        plan.resolvedNames.add(cfunctionName);
+        AnalysisMetrics.Phase resolve = metrics.phase(AnalysisMetrics.RESOLVE);
+        resolve.count("callSites", 1);
+        resolve.count("resolvedCallSites", dependentSliceProfiles.size());
+        for (SliceProfile dep_profile : dependentSliceProfiles) {
+            plan.addDependency(enclNamePosTuple, dep_profile, sliceProfilesInfo, true);
+        }
+        plan.orderSensitive |= spansFiles(dependentSliceProfiles);
+
+        if (dependentSliceProfiles.size() > 0) {
+            return;
+        }
+
+        if (BUFFER_ERROR_FUNCTIONS.contains(cfunctionName)) {
+            ArrayList<String> cErrors = new ArrayList<>();
+            cErrors.add("Use of " + cfunctionName + " at " + Position.format(cfunctionPos));
+            EnclNamePosTuple bufferErrorFunctionPosTuple =
+                    new EnclNamePosTuple(enclNamePosTuple.varName() + "#" + cfunctionName,
+                            enclNamePosTuple.functionName(), enclNamePosTuple.fileName(), cfunctionPos);
+            plan.steps.add(() -> {
+                DG.addVertex(enclNamePosTuple);
+                hasNoEdge(enclNamePosTuple, bufferErrorFunctionPosTuple);
+                detectedViolations.put(bufferErrorFunctionPosTuple, new ArrayList<>(cErrors));
+                return null;
+            });
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private LinkedList<SliceProfile> findDependentSliceProfiles(String cfunctionName,
+                                                                int argPosIndex, String typeName,
+                                                                FunctionScope currentFunction,
+                                                                CallSiteTable callSites,
+                                                                Map<String, SliceProfilesInfo> sliceProfileInfo) {
+        LinkedList<SliceProfile> dependentSliceProfiles = new LinkedList<>();
+        for (CFunction cfunction : findPossibleFunctions(functionIndexFor(sliceProfileInfo), cfunctionName,
+                argPosIndex, currentFunction, callSites)) {
+            String filePath = cfunction.getFilePath();
+            SliceProfilesInfo profileInfo = sliceProfileInfo.get(filePath);
+            NamePos param = cfunction.getFuncArgs().get(argPosIndex - 1);
+            String param_name = param.getName();
+            long param_pos = param.getPos();
+            SliceProfile paramProfile = profileInfo.profileOf(param_name, param_pos, cfunction.getEnclFunctionName(),
+                    filePath);
+            if (paramProfile == null) {
+                continue;
+            }
+            dependentSliceProfiles.add(paramProfile);
+        }
+        return dependentSliceProfiles;
+    }
+
+    private FunctionIndex functionIndexFor(Map<String, SliceProfilesInfo> profilesInfo) {
+        return profilesInfo == javaSliceProfilesInfo ? javaFunctionIndex : cppFunctionIndex;
+    }
+
+
+    private void analyzeNativeFunction(SliceProfile profile,
+                                       Map<String, SliceProfilesInfo> profilesInfo,
+                                       FunctionSignature enclFunctionSignature,
+                                       EnclNamePosTuple enclNamePosTuple, ProfilePlan plan) {
+        String clazzName = profilesInfo.get(profile.fileName).className;
+        if (clazzName == null) {
+            return;
+        }
+        String jniFunctionName = profile.functionName;
+        if (jniFunctionName.length() > 2 && jniFunctionName.startsWith("n")
+                && Character.isUpperCase(jniFunctionName.charAt(1))) {
+            jniFunctionName = jniFunctionName.substring(1);
+        }
+        String jniArgName = profile.varName;
+        int jniArgPosIndex = enclFunctionSignature.indexOfParameter(jniArgName) + 2;
+        String jniFunctionSearchStr = clazzName + "_" + jniFunctionName;
+        plan.jniFunction = jniFunctionSearchStr.toLowerCase();
+        List<SliceProfile> jniSliceProfiles = new ArrayList<>();
+
+        for (String filePath : cppSliceProfilesInfo.keySet()) {
+            SliceProfilesInfo profileInfo = cppSliceProfilesInfo.get(filePath);
+
+            for (FunctionNamePos funcNamePos : profileInfo.functions.keySet()) {
+                FunctionScope function = profileInfo.functions.get(funcNamePos);
+                String functionName = funcNamePos.getName();
+                if (!functionName.toLowerCase().endsWith(jniFunctionSearchStr.toLowerCase())) {
+                    continue;
+                }
+                FunctionSignature functionSignature = profileInfo.signatureOf(function);
+                if (functionSignature.parameterCount() < 1 || jniArgPosIndex > functionSignature.parameterCount() - 1) {
+                    continue;
+                }
+                String parameterName = functionSignature.parameterName(jniArgPosIndex);
+                long parameterPosition = functionSignature.parameterPosition(jniArgPosIndex);
+                SliceProfile possibleSliceProfile = profileInfo.profileOf(parameterName, parameterPosition,
+                        functionName, filePath);
+                if (possibleSliceProfile == null) {
+                    continue;
+                }
+                plan.addDependency(enclNamePosTuple, possibleSliceProfile, cppSliceProfilesInfo, true);
+                jniSliceProfiles.add(possibleSliceProfile);
+            }
+        }
+        plan.orderSensitive |= spansFiles(jniSliceProfiles);
+        metrics.phase(AnalysisMetrics.RESOLVE).count("jniBridges", jniSliceProfiles.size());
+    }
+
+    /**
+     * True if the profiles come from more than one file, their order then follows the order of the files.
+     */
+    private static boolean spansFiles(List<SliceProfile> profiles) {
+        for (SliceProfile profile : profiles) {
+            if (!profile.fileName.equals(profiles.get(0).fileName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasNoEdge(EnclNamePosTuple sourceNamePosTuple,
+                              EnclNamePosTuple targetNamePosTuple) {
+        if (sourceNamePosTuple.equals(targetNamePosTuple)) {
+            return false;
+        }
+        int sourceId = DG.addVertex(sourceNamePosTuple);
+        int targetId = DG.addVertex(targetNamePosTuple);
+        return DG.addEdge(sourceId, targetId);
+    }
+
+    private static LinkedList<CFunction> findPossibleFunctions(FunctionIndex functionIndex, String cfunctionName,
+                                                               int argPosIndex, FunctionScope enclFunction,
+                                                               CallSiteTable callSites) {
+        LinkedList<CFunction> possibleFunctions = new LinkedList<>();
+
+        if (enclFunction == null) {
+            return possibleFunctions;
+        }
+
+        for (FunctionIndex.IndexedFunction candidate : functionIndex.candidates(cfunctionName)) {
+            FunctionSignature signature = candidate.signature;
+            String functionName = candidate.functionNamePos.getName();
+
+            int parameterCount = signature.parameterCount();
+            if (parameterCount == 0 || argPosIndex > parameterCount) {
+                continue;
+            }
+
+            int argIndex = argPosIndex - 1;
+            if (signature.parameterName(argIndex).equals("")) {
+                continue;
+            }
+
+            if (!callSites.accepts(cfunctionName, parameterCount)) {
+                continue;
+            }
+
+            possibleFunctions.add(new CFunction(cfunctionName, Position.NONE, argIndex, functionName, enclFunction,
+                    signature.getParameters(), candidate.filePath));
+        }
+        return possibleFunctions;
+    }
+
+    /**
+     * Part of the analysis of one slice profile, returns a profile to analyze before the next part or null.
+     */
+    private interface AnalysisStep {
+        PendingProfile run();
+    }
+
+    /**
+     * Steps of the analysis of one slice profile, and the profiles they may hand back.
+     */
+    private final class ProfilePlan {
+        final Map<String, SliceProfilesInfo> profilesInfo;
+        final List<AnalysisStep> steps = new ArrayList<>();
+        final List<PendingProfile> dependencies = new ArrayList<>();
+//      what the plan read besides the file of its profile, to tell which changes it must be planned again for
+        final List<String> resolvedNames = new ArrayList<>();
+        String jniFunction;
+        boolean orderSensitive;
+
+        ProfilePlan(Map<String, SliceProfilesInfo> profilesInfo) {
+            this.profilesInfo = profilesInfo;
+        }
+
+        /**
+         * True if the plan of the profile read one of the files or resolved one of the function names.
+         */
+        boolean reads(SliceProfile profile, Set<String> files, Set<String> functionNames,
+                      List<String> lowerCaseNames, boolean filesAdded) {
+            if (files.contains(profile.fileName) || (filesAdded && orderSensitive)) {
+                return true;
+            }
+            for (PendingProfile dependency : dependencies) {
+                if (files.contains(dependency.profile.fileName)) {
+                    return true;
+                }
+            }
+            for (String resolvedName : resolvedNames) {
+                if (functionNames.contains(resolvedName)) {
+                    return true;
+                }
+            }
+            if (jniFunction != null) {
+                for (String functionName : lowerCaseNames) {
+                    if (functionName.endsWith(jniFunction)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Adds the step that adds the edge from {@code sourceNamePosTuple} to the profile. It hands the profile
+         * back for analysis if the edge is new, unless {@code skipAnalyzed} is set and it was analyzed already.
+         */
+        void addDependency(EnclNamePosTuple sourceNamePosTuple, SliceProfile profile,
+                           Map<String, SliceProfilesInfo> targetProfilesInfo, boolean skipAnalyzed) {
+            EnclNamePosTuple targetNamePosTuple = new EnclNamePosTuple(profile.varName, profile.functionName,
+                    profile.fileName, profile.definedPosition);
+            PendingProfile dependency = new PendingProfile(profile, targetProfilesInfo);
+            dependencies.add(dependency);
+            steps.add(() -> {
+                if (!hasNoEdge(sourceNamePosTuple, targetNamePosTuple)) {
+                    return null;
+                }
+                if (skipAnalyzed && analyzedProfiles.skip(profile)) {
+                    return null;
+                }
+                return dependency;
+            });
+        }
+    }
+
+    private static final class PendingProfile {
+        final SliceProfile profile;
+        final Map<String, SliceProfilesInfo> profilesInfo;
+
+        PendingProfile(SliceProfile profile, Map<String, SliceProfilesInfo> profilesInfo) {
+            this.profile = profile;
+            this.profilesInfo = profilesInfo;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.noble;
+
+import com.noble.models.EnclNamePosTuple;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+
+import java.util.*;
+
+/**
+ * Data dependency graph over slice variables. Every {@link EnclNamePosTuple} is interned to a dense int id on
+ * first use, successors are kept per vertex in growable int arrays and edges in an open-addressing set of
+ * packed (source, target) ids, so no object is allocated per edge. Vertices and the successors of a vertex are
+ * kept in insertion order, which is also the order the JGraphT graph this replaced iterated them in.
+ */
+final class DependencyGraph {
+
+    private static final int[] NO_SUCCESSORS = new int[0];
+
+    private final Map<EnclNamePosTuple, Integer> vertexIds = new HashMap<>();
+    private final List<EnclNamePosTuple> vertices = new ArrayList<>();
+    private int[][] successors = new int[16][];
+    private int[] successorCounts = new int[16];
+    private int[] inDegrees = new int[16];
+    private final EdgeSet edges = new EdgeSet();
+
+    int vertexCount() {
+        return vertices.size();
+    }
+
+    int edgeCount() {
+        return edges.size();
+    }
+
+    EnclNamePosTuple vertex(int vertexId) {
+        return vertices.get(vertexId);
+    }
+
+    List<EnclNamePosTuple> vertices() {
+        return Collections.unmodifiableList(vertices);
+    }
+
+    boolean containsVertex(EnclNamePosTuple vertex) {
+        return vertexIds.containsKey(vertex);
+    }
+
+    /**
+     * Id of the vertex, or -1 when it is not part of the graph.
+     */
+    int vertexId(EnclNamePosTuple vertex) {
+        Integer vertexId = vertexIds.get(vertex);
+        return vertexId == null ? -1 : vertexId;
+    }
+
+    /**
+     * Adds the vertex if it is not part of the graph yet and returns its id.
+     */
+    int addVertex(EnclNamePosTuple vertex) {
+        Integer vertexId = vertexIds.get(vertex);
+        if (vertexId != null) {
+            return vertexId;
+        }
+        int newId = vertices.size();
+        if (newId == successors.length) {
+            int capacity = newId * 2;
+            successors = Arrays.copyOf(successors, capacity);
+            successorCounts = Arrays.copyOf(successorCounts, capacity);
+            inDegrees = Arrays.copyOf(inDegrees, capacity);
+        }
+        successors[newId] = NO_SUCCESSORS;
+        vertices.add(vertex);
+        vertexIds.put(vertex, newId);
+        return newId;
+    }
+
+    /**
+     * Adds the edge between two vertices of the graph, returns false if it was already there.
+     */
+    boolean addEdge(int sourceId, int targetId) {
+        if (!edges.add(sourceId, targetId)) {
+            return false;
+        }
+        int count = successorCounts[sourceId];
+        if (count == successors[sourceId].length) {
+            successors[sourceId] = Arrays.copyOf(successors[sourceId], Math.max(4, count * 2));
+        }
+        successors[sourceId][count] = targetId;
+        successorCounts[sourceId] = count + 1;
+        inDegrees[targetId]++;
+        return true;
+    }
+
+    boolean containsEdge(int sourceId, int targetId) {
+        return edges.contains(sourceId, targetId);
+    }
+
+    int inDegree(int vertexId) {
+        return inDegrees[vertexId];
+    }
+
+    int successorCount(int vertexId) {
+        return successorCounts[vertexId];
+    }
+
+    int successor(int vertexId, int index) {
+        return successors[vertexId][index];
+    }
+
+    /**
+     * True if the vertex has the same successors, in the same order, as vertex {@code otherId} of the other graph.
+     */
+    boolean sameSuccessors(int vertexId, DependencyGraph other, int otherId) {
+        int count = successorCounts[vertexId];
+        if (count != other.successorCounts[otherId]) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (!vertex(successors[vertexId][i]).equals(other.vertex(other.successors[otherId][i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void clear() {
+        vertexIds.clear();
+        vertices.clear();
+        successors = new int[16][];
+        successorCounts = new int[16];
+        inDegrees = new int[16];
+        edges.clear();
+    }
+
+    /**
+     * Copy of the graph as a JGraphT graph with the same vertex and edge order, for exporters.
+     */
+    Graph<EnclNamePosTuple, DefaultEdge> toJGraphT() {
+        Graph<EnclNamePosTuple, DefaultEdge> graph = new DefaultDirectedGraph<>(DefaultEdge.class);
+        vertices.forEach(graph::addVertex);
+        for (int sourceId = 0; sourceId < vertices.size(); sourceId++) {
+            for (int i = 0; i < successorCounts[sourceId]; i++) {
+                graph.addEdge(vertices.get(sourceId), vertices.get(successors[sourceId][i]));
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Open-addressing hash set of edges packed as {@code source << 32 | target}.
+     */
+    private static final class EdgeSet {
+        private static final long EMPTY = -1L;
+
+        private long[] slots = newSlots(64);
+        private int size;
+
+        private static long[] newSlots(int capacity) {
+            long[] slots = new long[capacity];
+            Arrays.fill(slots, EMPTY);
+            return slots;
+        }
+
+        private static long pack(int sourceId, int targetId) {
+            return ((long) sourceId << 32) | (targetId & 0xffffffffL);
+        }
+
+        private static int slot(long edge, int mask) {
+            long hash = edge * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(int sourceId, int targetId) {
+            long edge = pack(sourceId, targetId);
+            int mask = slots.length - 1;
+            for (int i = slot(edge, mask); slots[i] != EMPTY; i = (i + 1) & mask) {
+                if (slots[i] == edge) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean add(int sourceId, int targetId) {
+            if ((size + 1) * 2 > slots.length) {
+                grow();
+            }
+            long edge = pack(sourceId, targetId);
+            int mask = slots.length - 1;
+            int i = slot(edge, mask);
+            for (; slots[i] != EMPTY; i = (i + 1) & mask) {
+                if (slots[i] == edge) {
+                    return false;
+                }
+            }
+            slots[i] = edge;
+            size++;
+            return true;
+        }
+
+        private void grow() {
+            long[] oldSlots = slots;
+            slots = newSlots(oldSlots.length * 2);
+            int mask = slots.length - 1;
+            for (long edge : oldSlots) {
+                if (edge != EMPTY) {
+                    int i = slot(edge, mask);
+                    while (slots[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    slots[i] = edge;
+                }
+            }
+        }
+
+        void clear() {
+            slots = newSlots(64);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.noble;
+
+import com.noble.models.FunctionNamePos;
+import com.noble.models.FunctionSignature;
+import com.noble.models.SliceProfilesInfo;
+
+import java.util.*;
+
+/**
+ * Name to declaration index over every function of a set of files, including the function pointer aliases
+ * of {@link SliceProfilesInfo#functionDeclMap}. Candidates are returned grouped by file in the order of the
+ * indexed table, direct matches first and then alias matches, which is the order the per-file scan produced.
+ */
+final class FunctionIndex {
+
+    private final Map<String, Map<Integer, List<IndexedFunction>>> functionsByName = new HashMap<>();
+    private final Map<String, List<Alias>> aliasesByName = new HashMap<>();
+
+    FunctionIndex(Map<String, SliceProfilesInfo> profilesInfo) {
+        int fileOrdinal = 0;
+        for (String filePath : profilesInfo.keySet()) {
+            SliceProfilesInfo profileInfo = profilesInfo.get(filePath);
+            for (FunctionNamePos functionNamePos : profileInfo.functions.keySet()) {
+                functionsByName.computeIfAbsent(functionNamePos.getName(), name -> new LinkedHashMap<>()).
+                        computeIfAbsent(fileOrdinal, ordinal -> new ArrayList<>()).
+                        add(new IndexedFunction(filePath, functionNamePos,
+                                profileInfo.signatureOf(profileInfo.functions.get(functionNamePos))));
+            }
+            for (String aliasedName : profileInfo.functionDeclMap.keySet()) {
+                for (FunctionNamePos alias : profileInfo.functionDeclMap.get(aliasedName)) {
+                    aliasesByName.computeIfAbsent(aliasedName, name -> new ArrayList<>()).
+                            add(new Alias(fileOrdinal, alias.getFunctionDeclName()));
+                }
+            }
+            fileOrdinal++;
+        }
+    }
+
+    List<IndexedFunction> candidates(String cfunctionName) {
+        Map<Integer, List<IndexedFunction>> directMatches = functionsByName.get(cfunctionName);
+        List<Alias> aliases = aliasesByName.get(cfunctionName);
+        if (aliases == null) {
+            if (directMatches == null) {
+                return Collections.emptyList();
+            }
+            if (directMatches.size() == 1) {
+                return directMatches.values().iterator().next();
+            }
+        }
+
+        TreeMap<Integer, List<IndexedFunction>> candidatesByFile = new TreeMap<>();
+        if (directMatches != null) {
+            directMatches.forEach((fileOrdinal, functions) ->
+                    candidatesByFile.computeIfAbsent(fileOrdinal, ordinal -> new ArrayList<>()).addAll(functions));
+        }
+        if (aliases != null) {
+            for (Alias alias : aliases) {
+                Map<Integer, List<IndexedFunction>> aliasMatches = functionsByName.get(alias.declName);
+                if (aliasMatches == null || !aliasMatches.containsKey(alias.fileOrdinal)) {
+                    continue;
+                }
+                candidatesByFile.computeIfAbsent(alias.fileOrdinal, ordinal -> new ArrayList<>()).
+                        addAll(aliasMatches.get(alias.fileOrdinal));
+            }
+        }
+        List<IndexedFunction> candidates = new ArrayList<>();
+        candidatesByFile.values().forEach(candidates::addAll);
+        return candidates;
+    }
+
+    static final class IndexedFunction {
+        final String filePath;
+        final FunctionNamePos functionNamePos;
+        final FunctionSignature signature;
+
+        private IndexedFunction(String filePath, FunctionNamePos functionNamePos, FunctionSignature signature) {
+            this.filePath = filePath;
+            this.functionNamePos = functionNamePos;
+            this.signature = signature;
+        }
+    }
+
+    private static final class Alias {
+        private final int fileOrdinal;
+        private final String declName;
+
+        private Alias(int fileOrdinal, String declName) {
+            this.fileOrdinal = fileOrdinal;
+            this.declName = declName;
+        }
+    }
+}
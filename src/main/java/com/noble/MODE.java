@@ -4,24 +4,34 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * Defaults that differ between testing and regular scans. Settings that are the same in both are set by
+ * {@link AnalysisConfig.Builder}, which also reads the {@code srcbuggy.*} system properties once.
+ */
 @SuppressWarnings("unused")
 enum MODE {
     TESTING("testing"), NON_TESTING("non_testing");
 
+    private final String modeName;
     private final Boolean checkBuffer;
     private final Boolean startFromCpp;
     private final Boolean exportGraph;
     private final Boolean skipSrcml;
     private final Boolean skipViolations;
+    private final Integer srcmlBatchSize;
+    private final String srcmlCacheDirectory;
     private final List<String> lookupString;
 
     MODE(String mode) {
+        this.modeName = mode;
         if (mode.equals("testing")) {
             this.skipSrcml = true;
             this.startFromCpp = false;
             this.exportGraph = false;
             this.checkBuffer = false;
             this.skipViolations = true;
+            this.srcmlBatchSize = 0;
+            this.srcmlCacheDirectory = "";
             this.lookupString = Arrays.asList("shadePremulSpan");
         }
         else {
@@ -30,10 +40,28 @@ enum MODE {
             this.exportGraph = false;
             this.checkBuffer = true;
             this.skipViolations = false;
+            this.srcmlBatchSize = 64;
+            this.srcmlCacheDirectory = ".srcbuggy-cache";
             this.lookupString = Collections.emptyList();
         }
     }
 
+    /**
+     * The mode called {@code modeName}, {@code testing} or {@code non_testing}.
+     */
+    static MODE named(String modeName) {
+        for (MODE mode : values()) {
+            if (mode.modeName.equals(modeName)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown mode " + modeName + ", expected testing or non_testing");
+    }
+
+    public String modeName() {
+        return modeName;
+    }
+
     public Boolean checkBuffer() {
         return checkBuffer;
     }
@@ -54,6 +82,14 @@ enum MODE {
         return skipViolations;
     }
 
+    public Integer srcmlBatchSize() {
+        return srcmlBatchSize;
+    }
+
+    public String srcmlCacheDirectory() {
+        return srcmlCacheDirectory;
+    }
+
     public List<String> lookupString() {
         return lookupString;
     }
@@ -0,0 +1,186 @@
+package com.noble;
+
+import com.noble.models.EnclNamePosTuple;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Shortest paths from a set of sources to a set of targets with one breadth-first search per source, over the
+ * int ids of a {@link DependencyGraph}. The graph must not change while a search runs. Successors are visited in
+ * insertion order, so every path is the one {@link org.jgrapht.alg.shortestpath.BFSShortestPath} found for the
+ * same pair on the JGraphT graph.
+ */
+final class ReachabilityEngine {
+
+    private static final int UNVISITED = -1;
+
+    private final DependencyGraph graph;
+    private final AnalysisMetrics.Phase phase;
+
+    ReachabilityEngine(DependencyGraph graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Records every search under the phase.
+     */
+    ReachabilityEngine(DependencyGraph graph, AnalysisMetrics.Phase phase) {
+        this.graph = graph;
+        this.phase = phase;
+    }
+
+    /**
+     * Shortest path from every source to every target, {@code null} where the target is not reachable. The
+     * result is indexed like the arguments, the searches of different sources run on {@code parallelism} threads.
+     */
+    List<List<List<EnclNamePosTuple>>> shortestPaths(List<EnclNamePosTuple> sources, List<EnclNamePosTuple> targets,
+                                                     int parallelism)
+            throws InterruptedException, ExecutionException {
+        int[] targetIds = new int[targets.size()];
+        for (int i = 0; i < targetIds.length; i++) {
+            targetIds[i] = graph.vertexId(targets.get(i));
+        }
+        if (parallelism <= 1 || sources.size() < 2) {
+            List<List<List<EnclNamePosTuple>>> paths = new ArrayList<>(sources.size());
+            for (EnclNamePosTuple source : sources) {
+                paths.add(pathsTo(source, targetIds));
+            }
+            return paths;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(() -> IntStream.range(0, sources.size()).parallel()
+                    .mapToObj(i -> pathsTo(sources.get(i), targetIds))
+                    .collect(Collectors.toList())).get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Path to every vertex reachable from the source, the source itself first, in the order the search reaches
+     * them.
+     */
+    List<List<EnclNamePosTuple>> pathsFrom(EnclNamePosTuple source) {
+        int sourceId = graph.vertexId(source);
+        if (sourceId == UNVISITED) {
+            return Collections.emptyList();
+        }
+        AnalysisMetrics.Stopwatch stopwatch = AnalysisMetrics.start();
+        int[] parents = new int[graph.vertexCount()];
+        int[] visitOrder = new int[graph.vertexCount()];
+        int visited = search(sourceId, parents, visitOrder);
+        List<List<EnclNamePosTuple>> paths = new ArrayList<>(visited);
+        for (int i = 0; i < visited; i++) {
+            paths.add(path(parents, visitOrder[i]));
+        }
+        record(stopwatch, paths.size());
+        return paths;
+    }
+
+    /**
+     * Marks every vertex from which one of the marked {@code targets} is reachable, the targets included.
+     */
+    boolean[] reaching(boolean[] targets) {
+        int vertexCount = graph.vertexCount();
+//      predecessors of every vertex, laid out one vertex after the other
+        int[] offsets = new int[vertexCount + 1];
+        for (int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            offsets[vertexId + 1] = offsets[vertexId] + graph.inDegree(vertexId);
+        }
+        int[] predecessors = new int[offsets[vertexCount]];
+        int[] filled = Arrays.copyOf(offsets, vertexCount);
+        for (int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            for (int i = 0, count = graph.successorCount(vertexId); i < count; i++) {
+                predecessors[filled[graph.successor(vertexId, i)]++] = vertexId;
+            }
+        }
+
+        boolean[] reaching = Arrays.copyOf(targets, vertexCount);
+        int[] queue = new int[vertexCount];
+        int tail = 0;
+        for (int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            if (reaching[vertexId]) {
+                queue[tail++] = vertexId;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int vertexId = queue[head];
+            for (int i = offsets[vertexId]; i < offsets[vertexId + 1]; i++) {
+                if (!reaching[predecessors[i]]) {
+                    reaching[predecessors[i]] = true;
+                    queue[tail++] = predecessors[i];
+                }
+            }
+        }
+        return reaching;
+    }
+
+    private List<List<EnclNamePosTuple>> pathsTo(EnclNamePosTuple source, int[] targetIds) {
+        AnalysisMetrics.Stopwatch stopwatch = AnalysisMetrics.start();
+        int found = 0;
+        List<List<EnclNamePosTuple>> paths = new ArrayList<>(targetIds.length);
+        int sourceId = graph.vertexId(source);
+        int[] parents = null;
+        if (sourceId != UNVISITED) {
+            parents = new int[graph.vertexCount()];
+            search(sourceId, parents, new int[graph.vertexCount()]);
+        }
+        for (int targetId : targetIds) {
+            if (parents == null || targetId == UNVISITED || parents[targetId] == UNVISITED) {
+                paths.add(null);
+            } else {
+                paths.add(path(parents, targetId));
+                found++;
+            }
+        }
+        record(stopwatch, found);
+        return paths;
+    }
+
+    private void record(AnalysisMetrics.Stopwatch stopwatch, int paths) {
+        if (phase != null) {
+            phase.add(stopwatch);
+            phase.count("searches", 1);
+            phase.count("paths", paths);
+        }
+    }
+
+    /**
+     * Fills the parent of every vertex reachable from the source, the source being its own parent, and returns
+     * how many vertices were reached. {@code queue} ends up holding them in visit order.
+     */
+    private int search(int sourceId, int[] parents, int[] queue) {
+        Arrays.fill(parents, UNVISITED);
+        parents[sourceId] = sourceId;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = sourceId;
+        while (head < tail) {
+            int vertexId = queue[head++];
+            for (int i = 0, count = graph.successorCount(vertexId); i < count; i++) {
+                int successorId = graph.successor(vertexId, i);
+                if (parents[successorId] == UNVISITED) {
+                    parents[successorId] = vertexId;
+                    queue[tail++] = successorId;
+                }
+            }
+        }
+        return tail;
+    }
+
+    private List<EnclNamePosTuple> path(int[] parents, int targetId) {
+        ArrayDeque<EnclNamePosTuple> path = new ArrayDeque<>();
+        int vertexId = targetId;
+        while (parents[vertexId] != vertexId) {
+            path.addFirst(graph.vertex(vertexId));
+            vertexId = parents[vertexId];
+        }
+        path.addFirst(graph.vertex(vertexId));
+        return new ArrayList<>(path);
+    }
+}
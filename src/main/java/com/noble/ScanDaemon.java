@@ -0,0 +1,285 @@
+package com.noble;
+
+import com.noble.models.EnclNamePosTuple;
+import com.noble.models.SliceProfilesInfo;
+import com.noble.util.SrcmlCache;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Scans projects over and over in one JVM. The slice profiles of every file and the analysis of every project
+ * are kept in memory between scans, so a scan converts and slices only the files added or modified since the
+ * previous scan of the project and {@link AnalysisSession#update}s its analysis for them, with srcML extracted
+ * once and the JIT already warm. Scans are requested one per line, {@code scan <project>}, on stdin or a local
+ * socket, or follow the changes a {@link WatchService} reports for the project. A socket only listens on the
+ * loopback address and a connection has to send the token the daemon prints at start before its requests, so
+ * other users of the machine cannot scan through it.
+ */
+final class ScanDaemon {
+
+    private static final String SCAN = "scan";
+    private static final String QUIT = "quit";
+    private static final String TOKEN = "token";
+    private static final int TOKEN_TIMEOUT_MILLIS = 10_000;
+    private static final long SETTLE_MILLIS = 500;
+
+    private final AnalysisConfig config;
+    private final String srcmlExecutable;
+    private final SrcmlCache srcmlCache;
+    private final Map<Path, ScannedProject> projects = new HashMap<>();
+
+    /**
+     * The config must be {@link AnalysisConfig#incremental()}.
+     */
+    ScanDaemon(AnalysisConfig config, String srcmlExecutable) {
+        this.config = config;
+        this.srcmlExecutable = srcmlExecutable;
+        this.srcmlCache = config.srcmlCacheDirectory().isEmpty() ? null :
+                new SrcmlCache(Path.of(config.srcmlCacheDirectory()), SrcmlCache.srcmlVersion(srcmlExecutable));
+    }
+
+    /**
+     * Answers requests until the input ends or a {@code quit} request, returns false after a {@code quit}.
+     */
+    boolean serve(InputStream requests, PrintStream responses) throws IOException, InterruptedException {
+        return serve(new BufferedReader(new InputStreamReader(requests, StandardCharsets.UTF_8)), responses);
+    }
+
+    private boolean serve(BufferedReader reader, PrintStream responses) throws IOException, InterruptedException {
+        for (String request = reader.readLine(); request != null; request = reader.readLine()) {
+            request = request.trim();
+            if (request.isEmpty()) {
+                continue;
+            }
+            if (request.equals(QUIT)) {
+                responses.println("bye");
+                return false;
+            }
+            if (!request.startsWith(SCAN + " ")) {
+                responses.println("error unknown request " + request);
+                continue;
+            }
+            long scanStart = System.currentTimeMillis();
+            try {
+                Hashtable<String, Set<List<EnclNamePosTuple>>> violations =
+                        scan(Path.of(request.substring(SCAN.length()).trim()));
+                for (String violation : new TreeSet<>(violations.keySet())) {
+                    responses.println("violation " + violation + " on " + violations.get(violation).size() +
+                            " paths");
+                }
+                responses.println("done " + violations.size() + " violations in " +
+                        (System.currentTimeMillis() - scanStart) + "ms");
+            } catch (IOException | ExecutionException | RuntimeException e) {
+                e.printStackTrace();
+                responses.println("error " + e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Answers the requests of one local connection after the other, until one of them asks to {@code quit}. The
+     * first line of a connection must be {@code token <token>} with the token printed when the socket opens, a
+     * connection that does not send it in time is closed without reading any request.
+     */
+    void serve(int port) throws IOException, InterruptedException {
+        byte[] tokenBytes = new byte[16];
+        new SecureRandom().nextBytes(tokenBytes);
+        StringBuilder token = new StringBuilder();
+        for (byte tokenByte : tokenBytes) {
+            token.append(String.format("%02x", tokenByte));
+        }
+        try (ServerSocket serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            System.out.println("Waiting for scan requests on " + serverSocket.getLocalSocketAddress() +
+                    ", send \"" + TOKEN + " " + token + "\" first");
+            boolean serving = true;
+            while (serving) {
+                try (Socket socket = serverSocket.accept()) {
+                    BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    PrintStream responses = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+                    if (!authenticated(socket, reader, token.toString())) {
+                        responses.println("error unauthorized");
+                        continue;
+                    }
+                    serving = serve(reader, responses);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static boolean authenticated(Socket socket, BufferedReader reader, String token) throws IOException {
+        socket.setSoTimeout(TOKEN_TIMEOUT_MILLIS);
+        String request;
+        try {
+            request = reader.readLine();
+        } catch (SocketTimeoutException e) {
+            return false;
+        }
+        socket.setSoTimeout(0);
+        return request != null && MessageDigest.isEqual((TOKEN + " " + token).getBytes(StandardCharsets.UTF_8),
+                request.trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Scans the project, then again every time its files settle after a change. A scan that fails is reported and
+     * the project is watched on, the next change scans it again.
+     */
+    void watch(Path projectLocation) throws IOException, InterruptedException {
+        if (!Files.isDirectory(projectLocation)) {
+            throw new NotDirectoryException(projectLocation.toString());
+        }
+        try (WatchService watchService = projectLocation.getFileSystem().newWatchService()) {
+            register(projectLocation, watchService);
+            scanWatched(projectLocation);
+            while (true) {
+//              a checkout or a save touches many files at once, wait for the events to stop before scanning
+                WatchKey watchKey = watchService.take();
+                while (watchKey != null) {
+                    Path directory = (Path) watchKey.watchable();
+                    for (WatchEvent<?> event : watchKey.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                            Path created = directory.resolve((Path) event.context());
+                            if (Files.isDirectory(created)) {
+                                register(created, watchService);
+                            }
+                        }
+                    }
+                    watchKey.reset();
+                    watchKey = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                scanWatched(projectLocation);
+            }
+        }
+    }
+
+    private void scanWatched(Path projectLocation) throws InterruptedException {
+        try {
+            scan(projectLocation);
+        } catch (IOException | ExecutionException | RuntimeException e) {
+            e.printStackTrace();
+            System.err.println("Scan of " + projectLocation + " failed, waiting for the next change");
+        }
+    }
+
+    private static void register(Path directory, WatchService watchService) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+                path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+    }
+
+    /**
+     * Slices the files of the project that changed since its last scan and analyzes the project. Without any
+     * change the violations of the last scan are returned as they are.
+     */
+    Hashtable<String, Set<List<EnclNamePosTuple>>> scan(Path projectLocation)
+            throws IOException, InterruptedException, ExecutionException {
+        ScannedProject lastScan = projects.get(projectLocation.toAbsolutePath().normalize());
+        Map<String, ScannedFile> lastFiles = lastScan == null ? Collections.emptyMap() : lastScan.files;
+        TreeMap<String, ScannedFile> files = new TreeMap<>();
+        Map<String, BasicFileAttributes> changedFiles = new LinkedHashMap<>();
+        for (String sourceFile : SrcmlBatchRunner.listSourceFiles(projectLocation)) {
+            BasicFileAttributes attributes = Files.readAttributes(Path.of(sourceFile), BasicFileAttributes.class);
+            ScannedFile lastFile = lastFiles.get(sourceFile);
+            if (lastFile != null && lastFile.unchanged(attributes)) {
+                files.put(sourceFile, lastFile);
+            } else {
+                changedFiles.put(sourceFile, attributes);
+            }
+        }
+        if (lastScan != null && changedFiles.isEmpty() && files.size() == lastFiles.size()) {
+            System.out.println("No changes in " + projectLocation);
+            return lastScan.violations;
+        }
+
+        System.out.println("Slicing " + changedFiles.size() + " of " + (files.size() + changedFiles.size()) +
+                " files ...");
+        AnalysisSession session = lastScan == null ? new AnalysisSession(config) : lastScan.session;
+        session.startScan();
+        if (!changedFiles.isEmpty()) {
+            Hashtable<String, SliceProfilesInfo> slicedFiles = new Hashtable<>();
+            try (SliceScheduler sliceScheduler =
+                         new SliceScheduler(config.sliceParallelism(), srcmlCache, session.metrics(),
+                                 config.fileBudgetMillis(), session.slicesOnDemand())) {
+                new SrcmlBatchRunner(srcmlExecutable, config.srcmlProcesses(), config.srcmlBatchSize(), srcmlCache,
+                        session.metrics()).convert(new ArrayList<>(changedFiles.keySet()), sliceScheduler::submit);
+                sliceScheduler.collect(slicedFiles);
+            }
+//          files srcML could not convert or that went over the budget are tried again on the next scan
+            changedFiles.forEach((sourceFile, attributes) -> {
+                SliceProfilesInfo profilesInfo = slicedFiles.get(sourceFile);
+                if (profilesInfo != null) {
+                    files.put(sourceFile, new ScannedFile(attributes, profilesInfo));
+                }
+            });
+        }
+
+        Hashtable<String, Set<List<EnclNamePosTuple>>> violations;
+        if (lastScan == null) {
+            Map<String, SliceProfilesInfo> profilesInfo = new TreeMap<>();
+            files.forEach((sourceFile, scannedFile) -> profilesInfo.put(sourceFile, scannedFile.profilesInfo));
+            session.loadSliceProfiles(profilesInfo);
+            violations = session.analyze();
+        } else {
+            Map<String, SliceProfilesInfo> changedProfiles = new TreeMap<>();
+            files.forEach((sourceFile, scannedFile) -> {
+                if (lastFiles.get(sourceFile) != scannedFile) {
+                    changedProfiles.put(sourceFile, scannedFile.profilesInfo);
+                }
+            });
+            Set<String> removedFiles = new TreeSet<>(lastFiles.keySet());
+            removedFiles.removeAll(files.keySet());
+            violations = session.update(changedProfiles, removedFiles);
+        }
+        projects.put(projectLocation.toAbsolutePath().normalize(), new ScannedProject(files, session, violations));
+        return violations;
+    }
+
+    private static final class ScannedProject {
+        private final Map<String, ScannedFile> files;
+        private final AnalysisSession session;
+        private final Hashtable<String, Set<List<EnclNamePosTuple>>> violations;
+
+        private ScannedProject(Map<String, ScannedFile> files, AnalysisSession session,
+                               Hashtable<String, Set<List<EnclNamePosTuple>>> violations) {
+            this.files = files;
+            this.session = session;
+            this.violations = violations;
+        }
+    }
+
+    private static final class ScannedFile {
+        private final FileTime lastModified;
+        private final long size;
+        private final SliceProfilesInfo profilesInfo;
+
+        private ScannedFile(BasicFileAttributes attributes, SliceProfilesInfo profilesInfo) {
+            this.lastModified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.profilesInfo = profilesInfo;
+        }
+
+        private boolean unchanged(BasicFileAttributes attributes) {
+            return lastModified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.noble;
 
 import com.noble.models.*;
+import com.noble.util.Position;
+import com.noble.util.SrcmlTag;
+import com.noble.util.SrcmlTree;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -21,37 +25,101 @@ public class SliceGenerator {
     private final String fileName;
     private final Node unitNode;
     private final Hashtable<FunctionNamePos, Node> functionNodes;
-    private final Hashtable<String, SliceProfile> sliceProfiles;
+    private final Hashtable<SliceKey, SliceProfile> sliceProfiles;
     private final Hashtable<String, List<FunctionNamePos>> functionDeclMap;
+    private final Hashtable<FunctionNamePos, FunctionScope> functions;
+    private final IdentityHashMap<Node, FunctionScope> functionScopes;
     private final Hashtable<String, Hashtable<String, SliceProfile>> globalVariables;
     private Hashtable<String, Hashtable<String, SliceProfile>> localVariables;
     private String currentFunctionName;
-    private Node currentFunctionNode;
+    private FunctionScope currentFunction;
+    private final long budgetNanos;
+    private final long startNanos;
+    private final boolean lazy;
+    private FunctionSlices functionSlices;
 
     private static final String GLOBAL = "GLOBAL";
     public static final String IDENTIFIER_SEPARATOR = "[^\\w]+";
 
     public SliceGenerator(Node unitNode, String fileName) {
+        this(unitNode, fileName, 0);
+    }
+
+    /**
+     * Slices the unit within {@code budgetNanos}, 0 for no budget. {@link #generate()} throws a
+     * {@link BudgetExceededException} once slicing takes longer.
+     */
+    public SliceGenerator(Node unitNode, String fileName, long budgetNanos) {
+        this(unitNode, fileName, budgetNanos, false);
+    }
+
+    /**
+     * With {@code lazy} set, {@link #generate()} only indexes the functions of a C or C++ unit and slices them
+     * when the analysis looks up one of their profiles, see {@link FunctionSlices}.
+     */
+    public SliceGenerator(Node unitNode, String fileName, long budgetNanos, boolean lazy) {
+        this.budgetNanos = budgetNanos;
+        this.lazy = lazy;
+        this.startNanos = System.nanoTime();
         this.unitNode = unitNode;
         this.fileName = fileName;
         this.sliceProfiles = new Hashtable<>();
         this.functionNodes = findFunctionNodes(unitNode);
         this.functionDeclMap = new Hashtable<>();
+        this.functions = new Hashtable<>();
+        this.functionScopes = new IdentityHashMap<>();
+        functionNodes.forEach((functionNamePos, functionNode) -> functions.put(functionNamePos, scopeOf(functionNode)));
         this.localVariables = new Hashtable<>();
         this.globalVariables = new Hashtable<>();
         this.currentFunctionName = "";
-        this.currentFunctionNode = null;
+        this.currentFunction = null;
+    }
+
+    /**
+     * Slices one function of the unit {@code index} indexed, seeing only the given globals.
+     */
+    private SliceGenerator(SliceGenerator index, Hashtable<String, Hashtable<String, SliceProfile>> globalVariables) {
+        this.budgetNanos = index.budgetNanos;
+        this.lazy = false;
+        this.startNanos = System.nanoTime();
+        this.unitNode = index.unitNode;
+        this.fileName = index.fileName;
+        this.sliceProfiles = new Hashtable<>();
+        this.functionNodes = index.functionNodes;
+        this.functionDeclMap = index.functionDeclMap;
+        this.functions = index.functions;
+        this.functionScopes = index.functionScopes;
+        this.localVariables = new Hashtable<>();
+        this.globalVariables = globalVariables;
+        this.currentFunctionName = "";
+        this.currentFunction = null;
     }
 
     public SliceProfilesInfo generate() {
-        String langAttribute = this.unitNode.getAttributes().getNamedItem("language").getNodeValue();
+        String langAttribute = SrcmlTree.attribute(this.unitNode, "language");
+        String className = null;
         if (langAttribute.equals("Java")) {
             analyzeJavaSource(unitNode);
+            className = findClassName(unitNode);
         } else if (langAttribute.equals("C++") || langAttribute.equals("C")) {
+            if (lazy) {
+                functionSlices = new FunctionSlices();
+            }
             analyzeCPPSource(unitNode);
+            if (functionSlices != null) {
+                functionSlices.indexNames();
+            }
         }
 
-        return new SliceProfilesInfo(sliceProfiles, functionNodes, functionDeclMap, unitNode);
+        return new SliceProfilesInfo(sliceProfiles, functions, functionDeclMap, className, functionSlices);
+    }
+
+    /**
+     * The scope of a function, static block or macro node, made the first time the node is asked for.
+     */
+    private FunctionScope scopeOf(Node functionNode) {
+        return functionScopes.computeIfAbsent(functionNode,
+                node -> new FunctionScope(findFunctionSignature(node), findCallSites(node)));
     }
 
     private void analyzeJavaSource(Node unitNode) {
@@ -69,37 +137,37 @@ public class SliceGenerator {
 
     private void analyzeCppSourceContent(NodeList cppContent) {
         for (int count = 0; count < cppContent.getLength(); count++) {
+            checkBudget();
             Node node = cppContent.item(count);
-            String nodeTag = node.getNodeName();
-            switch (nodeTag) {
-                case "decl_stmt":
+            switch (SrcmlTag.of(node)) {
+                case DECL_STMT:
                     this.analyzeGlobalDecl(node);
                     break;
-                case "extern":
+                case EXTERN:
                     this.analyzeExternFunction(node);
                     break;
-                case "namespace":
+                case NAMESPACE:
                     this.analyzeNamespace(node);
                     break;
-                case "class":
+                case CLASS:
                     this.analyzeCppClass(node);
                     break;
-                case "struct":
+                case STRUCT:
                     this.analyzeStruct(node);
                     break;
-//                case "typedef":
+//                case TYPEDEF:
 //                    this.analyzeTypeDef(node);
 //                    break;
-//                case "macro":
+//                case MACRO:
 //                    this.localVariables = new Hashtable<>();
 //                    this.analyzeMacro(node);
 //                    break;
-                case "function_decl":
-                case "function":
-                case "constructor":
-                case "destructor":
+                case FUNCTION_DECL:
+                case FUNCTION:
+                case CONSTRUCTOR:
+                case DESTRUCTOR:
                     this.localVariables = new Hashtable<>();
-                    this.analyzeFunction(node);
+                    this.analyzeTopLevelFunction(node);
                     break;
             }
         }
@@ -109,7 +177,7 @@ public class SliceGenerator {
         if (namespaceNode == null) {
             return;
         }
-        Node block = nodeAtIndex(getNodeByName(namespaceNode, "block"), 0);
+        Node block = firstNodeByName(namespaceNode, "block");
         if (block == null) {
             return;
         }
@@ -126,23 +194,26 @@ public class SliceGenerator {
         if (structTypeName.equals("")) {
             return;
         }
-        Node structVarNameNode = nodeAtIndex(getNodeByName(structNode, "decl"), 0);
+        Node structVarNameNode = firstNodeByName(structNode, "decl");
         NamePos structVarNamePos = getNamePosTextPair(structVarNameNode);
         if (structVarNamePos.getName().equals("")) {
             return;
         }
         String structVarName = structVarNamePos.getName();
-        String structPos = structVarNamePos.getPos();
-        String sliceKey = structVarName + "%" + structPos + "%" + GLOBAL + "%" + fileName;
+        long structPos = structVarNamePos.getPos();
+        SliceKey sliceKey = new SliceKey(structVarName, structPos, GLOBAL, fileName);
         SliceProfile profile = new SliceProfile(fileName, GLOBAL, structVarName, structTypeName, structPos);
         sliceProfiles.put(sliceKey, profile);
         Hashtable<String, SliceProfile> structProfile = new Hashtable<>();
         structProfile.put(structVarName, profile);
         globalVariables.put(structVarName, structProfile);
+        if (functionSlices != null) {
+            functionSlices.declared(structVarName, profile);
+        }
 
         //analyze struct body
 
-        Node structNodeBlock = nodeAtIndex(getNodeByName(structNode, "block"), 0);
+        Node structNodeBlock = firstNodeByName(structNode, "block");
 
         if (structNodeBlock == null) {
             return;
@@ -158,7 +229,7 @@ public class SliceGenerator {
             return;
         }
 
-        Node cppClassBlock = nodeAtIndex(getNodeByName(classNode, "block"), 0);
+        Node cppClassBlock = firstNodeByName(classNode, "block");
 
         if (cppClassBlock == null) {
             return;
@@ -191,20 +262,19 @@ public class SliceGenerator {
         assert doc != null;
         for (int count = 0; count < doc.getLength(); count++) {
             Node node = doc.item(count);
-            String nodeTag = node.getNodeName();
-            switch (nodeTag) {
-                case "decl_stmt":
+            switch (SrcmlTag.of(node)) {
+                case DECL_STMT:
                     this.analyzeGlobalDecl(node);
                     break;
-                case "static":
+                case STATIC:
                     this.analyzeStaticBlock(node);
                     break;
-                case "class":
+                case CLASS:
                     this.analyzeJavaClass(node);
                     break;
-                case "function_decl":
-                case "function":
-                case "constructor":
+                case FUNCTION_DECL:
+                case FUNCTION:
+                case CONSTRUCTOR:
                     this.localVariables = new Hashtable<>();
                     this.analyzeFunction(node);
                     break;
@@ -217,19 +287,22 @@ public class SliceGenerator {
             return;
         }
         NamePos namePos = getNamePosTextPair(globalDeclNode);
-        String sliceKey = namePos.getName() + "%" + namePos.getPos() + "%" + GLOBAL + "%" + this.fileName;
+        SliceKey sliceKey = new SliceKey(namePos.getName(), namePos.getPos(), GLOBAL, this.fileName);
         SliceProfile sliceProfile = new SliceProfile(this.fileName, GLOBAL, namePos.getName(),
                 namePos.getType(), namePos.getPos());
         this.sliceProfiles.put(sliceKey, sliceProfile);
         Hashtable<String, SliceProfile> nameProfile = new Hashtable<>();
         nameProfile.put(namePos.getName(), sliceProfile);
         this.globalVariables.put(namePos.getName(), nameProfile);
+        if (functionSlices != null) {
+            functionSlices.declared(namePos.getName(), sliceProfile);
+        }
 
         String previousFunctionName = currentFunctionName;
-        Node previousFunctionNode = currentFunctionNode;
+        FunctionScope previousFunction = currentFunction;
 
         this.currentFunctionName = GLOBAL;
-        this.currentFunctionNode = null;
+        this.currentFunction = null;
         List<Node> decls = getNodeByName(globalDeclNode, "decl");
         for (Node decl : decls) {
             List<Node> nodeList = getNodeByName(decl, "block");
@@ -238,7 +311,7 @@ public class SliceGenerator {
             }
         }
         this.currentFunctionName = previousFunctionName;
-        this.currentFunctionNode = previousFunctionNode;
+        this.currentFunction = previousFunction;
     }
 
     private void analyzeStaticBlock(Node staticBlock) {
@@ -247,13 +320,13 @@ public class SliceGenerator {
         }
 
         String previousFunctionName = currentFunctionName;
-        Node previousFunctionNode = currentFunctionNode;
+        FunctionScope previousFunction = currentFunction;
 
         currentFunctionName = GLOBAL;
-        currentFunctionNode = staticBlock;
-        analyzeBlock(nodeAtIndex(getNodeByName(staticBlock, "block"), 0));
+        currentFunction = scopeOf(staticBlock);
+        analyzeBlock(firstNodeByName(staticBlock, "block"));
         currentFunctionName = previousFunctionName;
-        currentFunctionNode = previousFunctionNode;
+        currentFunction = previousFunction;
     }
 
     private void analyzeExternFunction(Node externNode) {
@@ -263,10 +336,10 @@ public class SliceGenerator {
         NodeList doc = externNode.getChildNodes();
         for (int count = 0; count < doc.getLength(); count++) {
             Node node = doc.item(count);
-            String nodeTag = node.getNodeName();
-            if (nodeTag.equals("function_decl") || nodeTag.equals("function")) {
+            SrcmlTag nodeTag = SrcmlTag.of(node);
+            if (nodeTag == SrcmlTag.FUNCTION_DECL || nodeTag == SrcmlTag.FUNCTION) {
                 this.localVariables = new Hashtable<>();
-                this.analyzeFunction(node);
+                this.analyzeTopLevelFunction(node);
             }
         }
     }
@@ -278,20 +351,28 @@ public class SliceGenerator {
         NamePos functionNamePos = getNamePosTextPair(macro);
 
         String previousFunctionName = currentFunctionName;
-        Node previousFunctionNode = currentFunctionNode;
+        FunctionScope previousFunction = currentFunction;
 
         this.currentFunctionName = functionNamePos.getName();
-        this.currentFunctionNode = macro;
+        this.currentFunction = scopeOf(macro);
         List<Node> argumentList = getArgumentList(macro);
         for (Node argument : argumentList) {
             analyzeParam(argument);
         }
-        analyzeBlock(nodeAtIndex(getNodeByName(macro, "block"), 0));
-        if ("block".equals(macro.getNextSibling().getNodeName())) {
+        analyzeBlock(firstNodeByName(macro, "block"));
+        if (SrcmlTag.BLOCK.matches(macro.getNextSibling())) {
             analyzeBlock(macro.getNextSibling());
         }
         this.currentFunctionName = previousFunctionName;
-        this.currentFunctionNode = previousFunctionNode;
+        this.currentFunction = previousFunction;
+    }
+
+    private void analyzeTopLevelFunction(Node function) {
+        if (functionSlices != null) {
+            functionSlices.add(function);
+        } else {
+            analyzeFunction(function);
+        }
     }
 
     private void analyzeFunction(Node function) {
@@ -301,18 +382,18 @@ public class SliceGenerator {
         NamePos functionNamePos = getNamePosTextPair(function);
 
         String previousFunctionName = currentFunctionName;
-        Node previousFunctionNode = currentFunctionNode;
+        FunctionScope previousFunction = currentFunction;
 
         this.currentFunctionName = functionNamePos.getName();
-        this.currentFunctionNode = function;
+        this.currentFunction = scopeOf(function);
         List<Node> param = getFunctionParamList(function);
         for (Node node : param) {
             analyzeParam(node);
         }
         analyzeMemberInitList(function);
-        analyzeBlock(nodeAtIndex(getNodeByName(function, "block"), 0));
+        analyzeBlock(firstNodeByName(function, "block"));
         this.currentFunctionName = previousFunctionName;
-        this.currentFunctionNode = previousFunctionNode;
+        this.currentFunction = previousFunction;
     }
 
     private void analyzeMemberInitList(Node functionNode) {
@@ -328,41 +409,41 @@ public class SliceGenerator {
         if (block == null) {
             return;
         }
-        Node blockContent = nodeAtIndex(getNodeByName(block, "block_content"), 0);
+        Node blockContent = firstNodeByName(block, "block_content");
         if (blockContent != null) {
             NodeList childNodes = blockContent.getChildNodes();
             for (Node stmt : asList(childNodes)) {
-                String stmtTag = stmt.getNodeName();
-                switch (stmtTag) {
-                    case "expr_stmt":
+                checkBudget();
+                switch (SrcmlTag.of(stmt)) {
+                    case EXPR_STMT:
                         analyzeExprStmt(stmt);
                         break;
-                    case "decl_stmt":
+                    case DECL_STMT:
                         analyzeDeclStmt(stmt);
                         break;
-                    case "if_stmt":
+                    case IF_STMT:
                         analyzeIfStmt(stmt);
                         break;
-                    case "for":
+                    case FOR:
                         analyzeForStmt(stmt);
                         break;
-                    case "while":
+                    case WHILE:
                         analyzeWhileStmt(stmt);
                         break;
-                    case "return":
+                    case RETURN:
                         analyzeReturnStmt(stmt);
                         break;
-                    case "try":
+                    case TRY:
                         analyzeTryBlock(stmt);
                         break;
-                    case "switch":
+                    case SWITCH:
                         analyzeSwitchStmt(stmt);
                         break;
-                    case "case":
+                    case CASE:
                         analyzeCaseStmt(stmt);
                         break;
-                    case "function":
-                    case "function_decl":
+                    case FUNCTION:
+                    case FUNCTION_DECL:
                         analyzeFunction(stmt);
                         break;
                 }
@@ -374,7 +455,7 @@ public class SliceGenerator {
         if (stmt == null) {
             return;
         }
-        analyzeDecl(nodeAtIndex(getNodeByName(stmt, "decl"), 0));
+        analyzeDecl(firstNodeByName(stmt, "decl"));
     }
 
     private void analyzeDecl(Node decl) {
@@ -382,16 +463,16 @@ public class SliceGenerator {
             return;
         }
         NamePos namePos = getNamePosTextPair(decl);
-        String sliceKey = namePos.getName() + "%" + namePos.getPos() + "%" +
-                this.currentFunctionName + "%" + this.fileName;
+        SliceKey sliceKey = new SliceKey(namePos.getName(), namePos.getPos(), this.currentFunctionName,
+                this.fileName);
         SliceProfile sliceProfile = new SliceProfile(this.fileName, this.currentFunctionName,
-                namePos.getName(), namePos.getType(), namePos.getPos(), this.currentFunctionNode);
+                namePos.getName(), namePos.getType(), namePos.getPos(), this.currentFunction);
         this.sliceProfiles.put(sliceKey, sliceProfile);
         Hashtable<String, SliceProfile> nameProfile = new Hashtable<>();
         nameProfile.put(namePos.getName(), sliceProfile);
         localVariables.put(namePos.getName(), nameProfile);
 
-        Node init = nodeAtIndex(getNodeByName(decl, "init"), 0);
+        Node init = firstNodeByName(decl, "init");
         if (init != null) {
             List<Node> initExprs = getNodeByName(init, "expr");
             Node initNode = nodeAtIndex(initExprs, 0);
@@ -403,7 +484,7 @@ public class SliceGenerator {
             }
         }
 
-        Node argumentListNode = nodeAtIndex(getNodeByName(decl, "argument_list"), 0);
+        Node argumentListNode = firstNodeByName(decl, "argument_list");
         if (argumentListNode == null) {
             return;
         }
@@ -424,13 +505,12 @@ public class SliceGenerator {
         if (typeName != null && !typeName.isEmpty() && init == null) {
             NamePos typeNamePos = new NamePos(typeName, null, namePos.getPos(), false);
             String cfunctionName = typeNamePos.getName();
-            String cfunctionPos = typeNamePos.getPos();
+            long cfunctionPos = typeNamePos.getPos();
 
             if (!localVariables.containsKey(cfunctionName) && !globalVariables.containsKey(cfunctionName)) {
-                String cfunctionSliceIdentifier = cfunctionName + "%" + cfunctionPos;
-                String cfuncSliceKey = cfunctionSliceIdentifier + "%" + currentFunctionName + "%" + fileName;
+                SliceKey cfuncSliceKey = new SliceKey(cfunctionName, cfunctionPos, currentFunctionName, fileName);
                 SliceProfile cfunctionProfile = new SliceProfile(fileName, currentFunctionName, cfunctionName,
-                        null, cfunctionPos, currentFunctionNode);
+                        null, cfunctionPos, currentFunction);
                 sliceProfiles.put(cfuncSliceKey, cfunctionProfile);
                 Hashtable<String, SliceProfile> cfprofile = new Hashtable<>();
                 cfprofile.put(cfunctionName, cfunctionProfile);
@@ -462,33 +542,32 @@ public class SliceGenerator {
 
     private NamePos analyzeExpr(Node expr) {
         if (expr != null) {
-            String exprTag = expr.getNodeName();
-            switch (exprTag) {
-                case "literal":
+            switch (SrcmlTag.of(expr)) {
+                case LITERAL:
                     return analyzeLiteralExpr(expr);
-                case "operator":
+                case OPERATOR:
                     return analyzeOperatorExpr(expr);
-                case "ternary":
+                case TERNARY:
                     return analyzeTernaryExpr(expr);
-                case "call":
+                case CALL:
                     return analyzeCallExpr(expr);
-                case "cast":
+                case CAST:
                     analyzeCastExpr(expr);
                     break;
-                case "name":
+                case NAME:
                     return getNamePosTextPair(expr);
             }
         }
-        return new NamePos("", "", "", false);
+        return new NamePos("", "", Position.NONE, false);
     }
 
     private NamePos analyzeLiteralExpr(Node literal) {
         String literalVal = literal.getTextContent();
-        String typeName = literal.getAttributes().getNamedItem("type").getNodeValue();
-        String pos = getNodePos(literal);
-        String sliceKey = literalVal + "%" + pos + "%" + currentFunctionName + "%" + fileName;
+        String typeName = SrcmlTree.attribute(literal, "type");
+        long pos = getNodePos(literal);
+        SliceKey sliceKey = new SliceKey(literalVal, pos, currentFunctionName, fileName);
         SliceProfile profile = new SliceProfile(fileName, currentFunctionName, literalVal, typeName, pos,
-                currentFunctionNode);
+                currentFunction);
         sliceProfiles.put(sliceKey, profile);
         Hashtable<String, SliceProfile> lvar = new Hashtable<>();
         lvar.put(literalVal, profile);
@@ -499,7 +578,7 @@ public class SliceGenerator {
     private NamePos analyzeOperatorExpr(Node expr) {
 //        TODO needs checking
         String text;
-        Node specificOpNode = nodeAtIndex(getNodeByName(expr.getParentNode(), "name"), 0);
+        Node specificOpNode = firstNodeByName(expr.getParentNode(), "name");
         if (specificOpNode == null) {
             text = getNamePosTextPair(expr.getParentNode()).getName();
         } else {
@@ -512,8 +591,8 @@ public class SliceGenerator {
         if (stmt == null) {
             return;
         }
-        analyzeBlock(nodeAtIndex(getNodeByName(stmt, "block"), 0));
-        analyzeCatchBlock(nodeAtIndex(getNodeByName(stmt, "catch"), 0));
+        analyzeBlock(firstNodeByName(stmt, "block"));
+        analyzeCatchBlock(firstNodeByName(stmt, "catch"));
     }
 
     private void analyzeCatchBlock(Node catchBlock) {
@@ -524,7 +603,7 @@ public class SliceGenerator {
         for (Node node : param) {
             analyzeParam(node);
         }
-        analyzeBlock(nodeAtIndex(getNodeByName(catchBlock, "block"), 0));
+        analyzeBlock(firstNodeByName(catchBlock, "block"));
     }
 
     private void analyzeSwitchStmt(Node stmt) {
@@ -538,21 +617,21 @@ public class SliceGenerator {
         if (stmt == null) {
             return;
         }
+        checkBudget();
         analyzeCompoundExpr(stmt);
     }
 
     private NamePos analyzeCallExpr(Node call) {
         NamePos cfunctionDetails = getNamePosTextPair(call);
         String cfunctionName = cfunctionDetails.getName();
-        String cfunctionPos = cfunctionDetails.getPos();
+        long cfunctionPos = cfunctionDetails.getPos();
 
         String cfunctionIdentifier = call.getTextContent().split(IDENTIFIER_SEPARATOR)[0];
         if (!localVariables.containsKey(cfunctionIdentifier) &&
                 !globalVariables.containsKey(cfunctionIdentifier)) {
-            String cfunctionSliceIdentifier = cfunctionIdentifier + "%" + cfunctionPos;
-            String cfuncSliceKey = cfunctionSliceIdentifier + "%" + currentFunctionName + "%" + fileName;
+            SliceKey cfuncSliceKey = new SliceKey(cfunctionIdentifier, cfunctionPos, currentFunctionName, fileName);
             SliceProfile cfunctionProfile = new SliceProfile(fileName, currentFunctionName,
-                    cfunctionIdentifier, null, cfunctionPos, currentFunctionNode);
+                    cfunctionIdentifier, null, cfunctionPos, currentFunction);
             sliceProfiles.put(cfuncSliceKey, cfunctionProfile);
             Hashtable<String, SliceProfile> cfprofile = new Hashtable<>();
             cfprofile.put(cfunctionIdentifier, cfunctionProfile);
@@ -563,9 +642,9 @@ public class SliceGenerator {
         return new NamePos(cfunctionIdentifier, "", cfunctionPos, false);
     }
 
-    private void analyzeArgumentList(Node call, String cfunctionName, String cfunctionPos,
+    private void analyzeArgumentList(Node call, String cfunctionName, long cfunctionPos,
                                      String cfunctionIdentifier) {
-        Node argumentNode = nodeAtIndex(getNodeByName(call, "argument_list"), 0);
+        Node argumentNode = firstNodeByName(call, "argument_list");
         if (argumentNode == null) {
             return;
         }
@@ -574,7 +653,7 @@ public class SliceGenerator {
         List<NamePos> argsList = new ArrayList<>();
         for (Node argExpr : argumentList) {
             argPosIndex = argPosIndex + 1;
-            Node argExprNode = nodeAtIndex(getNodeByName(argExpr, "expr"), 0);
+            Node argExprNode = firstNodeByName(argExpr, "expr");
             if (argExprNode == null) {
                 return;
             }
@@ -585,8 +664,8 @@ public class SliceGenerator {
                     continue;
                 }
                 String varName = varNamePos.getName();
-                String varPos = varNamePos.getPos();
-                String sliceKey = varName + "%" + varPos + "%" + this.currentFunctionName + "%" + this.fileName;
+                long varPos = varNamePos.getPos();
+                SliceKey sliceKey = new SliceKey(varName, varPos, this.currentFunctionName, this.fileName);
                 if (varName.equals("")) {
                     continue;
                 }
@@ -611,8 +690,8 @@ public class SliceGenerator {
                 } else if (isLiteralExpr(expr)) {
                     String typeName = varNamePos.getType();
                     SliceProfile sliceProfile = new SliceProfile(this.fileName, this.currentFunctionName,
-                            varName, typeName, varPos, this.currentFunctionNode);
-                    CFunction cFun = new CFunction(argPosIndex, currentFunctionName, currentFunctionNode);
+                            varName, typeName, varPos, this.currentFunction);
+                    CFunction cFun = new CFunction(argPosIndex, currentFunctionName, currentFunction);
                     sliceProfile.cfunctions.add(cFun);
                     sliceProfiles.put(sliceKey, sliceProfile);
                 }
@@ -638,7 +717,7 @@ public class SliceGenerator {
         }
         for (Node argumentList : getNodeByName(castExpr, "argument_list", true)) {
             for (Node argument : getNodeByName(argumentList, "argument")) {
-                Node argExprNode = nodeAtIndex(getNodeByName(argument, "expr"), 0);
+                Node argExprNode = firstNodeByName(argument, "expr");
                 if (argExprNode != null) {
                     for (Node expr : asList(argExprNode.getChildNodes())) {
                         analyzeExpr(expr);
@@ -648,8 +727,8 @@ public class SliceGenerator {
         }
     }
 
-    private void updateCFunctionsSliceProfile(String varName, String cfunctionName, String cfunctionPos,
-                                              int argPosIndex, String sliceVariablesString, String sliceKey) {
+    private void updateCFunctionsSliceProfile(String varName, String cfunctionName, long cfunctionPos,
+                                              int argPosIndex, String sliceVariablesString, SliceKey sliceKey) {
         Hashtable<String, Hashtable<String, SliceProfile>> sliceVariables;
         if (sliceVariablesString.equals("local_variables")) {
             sliceVariables = localVariables;
@@ -658,7 +737,7 @@ public class SliceGenerator {
         }
         SliceProfile sliceProfile = sliceVariables.get(varName).get(varName);
         CFunction cFun = new CFunction(cfunctionName, cfunctionPos, argPosIndex, currentFunctionName,
-                currentFunctionNode);
+                currentFunction);
         sliceProfile.cfunctions.add(cFun);
         sliceProfiles.put(sliceKey, sliceProfile);
         Hashtable<String, SliceProfile> body = sliceVariables.get(varName);
@@ -679,7 +758,7 @@ public class SliceGenerator {
             analyzeIfBlock(ifBlock);
         }
 
-        analyzeElseBlock(nodeAtIndex(getNodeByName(stmt, "else"), 0));
+        analyzeElseBlock(firstNodeByName(stmt, "else"));
 
     }
 
@@ -694,15 +773,15 @@ public class SliceGenerator {
         if (stmt == null) {
             return;
         }
-        analyzeCompoundExpr(nodeAtIndex(getNodeByName(stmt, "condition"), 0));
-        analyzeBlock(nodeAtIndex(getNodeByName(stmt, "block"), 0));
+        analyzeCompoundExpr(firstNodeByName(stmt, "condition"));
+        analyzeBlock(firstNodeByName(stmt, "block"));
     }
 
     private void analyzeReturnStmt(Node stmt) {
         if (stmt == null) {
             return;
         }
-        Node expr = nodeAtIndex(getNodeByName(stmt, "expr"), 0);
+        Node expr = firstNodeByName(stmt, "expr");
         if (expr != null) {
             analyzeExpr(expr.getChildNodes().item(0));
         }
@@ -712,27 +791,27 @@ public class SliceGenerator {
         if (node == null) {
             return;
         }
-        analyzeBlock(nodeAtIndex(getNodeByName(node, "block"), 0));
+        analyzeBlock(firstNodeByName(node, "block"));
     }
 
     private void analyzeForStmt(Node stmt) {
         if (stmt == null) {
             return;
         }
-        analyzeControl(nodeAtIndex(getNodeByName(stmt, "control"), 0));
-        analyzeBlock(nodeAtIndex(getNodeByName(stmt, "block"), 0));
+        analyzeControl(firstNodeByName(stmt, "control"));
+        analyzeBlock(firstNodeByName(stmt, "block"));
     }
 
     private void analyzeControl(Node control) {
         if (control == null) {
             return;
         }
-        Node init = nodeAtIndex(getNodeByName(control, "init"), 0);
+        Node init = firstNodeByName(control, "init");
         if (init != null) {
-            analyzeDecl(nodeAtIndex(getNodeByName(init, "decl"), 0));
+            analyzeDecl(firstNodeByName(init, "decl"));
         }
-        analyzeConditionExpr(nodeAtIndex(getNodeByName(control, "condition"), 0));
-        analyzeExpr(nodeAtIndex(getNodeByName(control, "incr"), 0));
+        analyzeConditionExpr(firstNodeByName(control, "condition"));
+        analyzeExpr(firstNodeByName(control, "incr"));
     }
 
     private void analyzeWhileStmt(Node stmt) {
@@ -753,9 +832,9 @@ public class SliceGenerator {
         if (expr == null) {
             return null;
         }
-        NamePos conditionNamePos = analyzeConditionExpr(nodeAtIndex(getNodeByName(expr, "condition"), 0));
-        NamePos thenNamePos = analyzeCompoundExpr(nodeAtIndex(getNodeByName(expr, "then"), 0));
-        NamePos elseNamePos = analyzeCompoundExpr(nodeAtIndex(getNodeByName(expr, "else"), 0));
+        NamePos conditionNamePos = analyzeConditionExpr(firstNodeByName(expr, "condition"));
+        NamePos thenNamePos = analyzeCompoundExpr(firstNodeByName(expr, "then"));
+        NamePos elseNamePos = analyzeCompoundExpr(firstNodeByName(expr, "else"));
         checkAndUpdateDVarSliceProfile(conditionNamePos, thenNamePos);
         checkAndUpdateDVarSliceProfile(conditionNamePos, elseNamePos);
 
@@ -766,7 +845,7 @@ public class SliceGenerator {
         if (param == null) {
             return;
         }
-        analyzeDecl(nodeAtIndex(getNodeByName(param, "decl"), 0));
+        analyzeDecl(firstNodeByName(param, "decl"));
     }
 
     private void analyzeExprStmt(Node exprStmt) {
@@ -780,7 +859,7 @@ public class SliceGenerator {
         if (compoundExpr == null) {
             return null;
         }
-        Node exprNode = nodeAtIndex(getNodeByName(compoundExpr, "expr"), 0);
+        Node exprNode = firstNodeByName(compoundExpr, "expr");
         if (exprNode != null) {
             List<Node> exprs = asList(exprNode.getChildNodes());
             if (isAssignmentExpr(exprs)) {
@@ -795,7 +874,7 @@ public class SliceGenerator {
             }
         }
 
-        return new NamePos("", "", "", false);
+        return new NamePos("", "", Position.NONE, false);
 //      TODO check for pointers and update slice profiles
     }
 
@@ -811,7 +890,7 @@ public class SliceGenerator {
 
         String lhsExprVarName = lhsExprNamePos.getName();
         String rhsExprVarName = rhsExprNamePos.getName();
-        String lhsExprPos = lhsExprNamePos.getPos();
+        long lhsExprPos = lhsExprNamePos.getPos();
 
         if (lhsExprVarName == null || rhsExprVarName == null) {
             return;
@@ -881,10 +960,10 @@ public class SliceGenerator {
     }
 
     private boolean isBufferWriteExpr(Node expr) {
-        if (!expr.getNodeName().equals("name")) {
+        if (!SrcmlTag.NAME.matches(expr)) {
             return false;
         }
-        Node compTag = nodeAtIndex(getNodeByName(expr, "index"), 0);
+        Node compTag = firstNodeByName(expr, "index");
         if (compTag == null) {
             return false;
         }
@@ -919,7 +998,7 @@ public class SliceGenerator {
         String lVarEnclFunctionName = currentFunctionName;
 
         SliceProfile lVarProfile;
-        String lVarDefinedPos;
+        long lVarDefinedPos;
         if (globalVariables.containsKey(lVarName)) {
             lVarEnclFunctionName = GLOBAL;
             lVarProfile = globalVariables.get(lVarName).get(lVarName);
@@ -948,13 +1027,13 @@ public class SliceGenerator {
             return false;
         }
         Node operatorExpr = exprs.get(2);
-        return operatorExpr.getNodeName().equals("operator") &&
+        return SrcmlTag.OPERATOR.matches(operatorExpr) &&
                 (operatorExpr.getFirstChild().getNodeValue().equals("=") ||
                         operatorExpr.getFirstChild().getNodeValue().equals("+="));
     }
 
     private boolean isLiteralExpr(Node expr) {
-        return expr.getFirstChild().getNodeName().equals("literal");
+        return SrcmlTag.LITERAL.matches(expr.getFirstChild());
     }
 
     private static Hashtable<FunctionNamePos, Node> findFunctionNodes(Node unitNode) {
@@ -973,4 +1052,221 @@ public class SliceGenerator {
         }
         return functionNodes;
     }
+
+    /**
+     * Functions of a C or C++ unit sliced on demand. Indexing the unit slices its global declarations and records
+     * every function with the globals declared before it, the analysis looks up the profiles of a function through
+     * {@link SliceProfilesInfo#profileOf}, which slices it first. A function is sliced on its own, with copies of
+     * the globals it sees, and its profiles are added to the unit's. What it adds to the copies is added to the
+     * globals, in the order the functions appear in the unit, once the analysis plans a global and every function
+     * is sliced. Slicing the whole unit up front gives the same profiles, except that the initializer blocks of
+     * globals see no locals of the function before them. Functions that may assign a function of the unit to a
+     * pointer are sliced while indexing, the aliases have to be known before the analysis starts. The budget
+     * applies to each function on its own, a function over budget adds no profiles and the rest of the unit is
+     * kept.
+     */
+    private final class FunctionSlices implements SliceProfilesInfo.FunctionSlicer {
+        private final List<String> globalNames = new ArrayList<>();
+        private final List<SliceProfile> globals = new ArrayList<>();
+        private final List<LazyFunction> functions = new ArrayList<>();
+        private final IdentityHashMap<Node, LazyFunction> functionsByNode = new IdentityHashMap<>();
+        private final Map<String, List<LazyFunction>> functionsByName = new HashMap<>();
+        private final Map<String, List<String>> functionNamesByToken = new HashMap<>();
+        private boolean untokenizedFunctionNames;
+        private boolean complete;
+        private int slicedFunctions;
+        private int overBudgetFunctions;
+
+        FunctionSlices() {
+            for (FunctionNamePos functionNamePos : functionNodes.keySet()) {
+                String functionName = functionNamePos.getName();
+                String token = firstToken(functionName);
+                if (token == null) {
+                    untokenizedFunctionNames = true;
+                } else {
+                    functionNamesByToken.computeIfAbsent(token, key -> new ArrayList<>()).add(functionName);
+                }
+            }
+        }
+
+        void declared(String globalName, SliceProfile global) {
+            globalNames.add(globalName);
+            globals.add(global);
+        }
+
+        void add(Node functionNode) {
+            LazyFunction function = new LazyFunction(functionNode, globals.size());
+            functions.add(function);
+            functionsByNode.put(functionNode, function);
+            if (mayAssignFunctionPointer(functionNode)) {
+                slice(function);
+            }
+        }
+
+        /**
+         * Maps the name of every function of the unit, nested ones included, to the recorded function that slices
+         * it.
+         */
+        void indexNames() {
+            functionNodes.forEach((functionNamePos, functionNode) -> {
+                Node node = functionNode;
+                while (node != null && !functionsByNode.containsKey(node)) {
+                    node = node.getParentNode();
+                }
+                if (node != null) {
+                    List<LazyFunction> namedFunctions = functionsByName.computeIfAbsent(functionNamePos.getName(),
+                            key -> new ArrayList<>());
+                    if (!namedFunctions.contains(functionsByNode.get(node))) {
+                        namedFunctions.add(functionsByNode.get(node));
+                    }
+                }
+            });
+        }
+
+        @Override
+        public synchronized void sliceFunctions(String functionName) {
+            List<LazyFunction> namedFunctions = functionsByName.get(functionName);
+            if (namedFunctions != null) {
+                namedFunctions.forEach(this::slice);
+            }
+        }
+
+        @Override
+        public synchronized void sliceAll() {
+            if (complete) {
+                return;
+            }
+            functions.forEach(this::slice);
+            for (LazyFunction function : functions) {
+                function.globalCopies.forEach((copy, global) -> {
+                    global.cfunctions.addAll(copy.cfunctions);
+                    global.dependentVars.addAll(copy.dependentVars);
+                    global.usedPositions.addAll(copy.usedPositions);
+                });
+                function.globalCopies = null;
+            }
+            complete = true;
+        }
+
+        @Override
+        public synchronized int functionCount() {
+            return functions.size();
+        }
+
+        @Override
+        public synchronized int slicedFunctionCount() {
+            return slicedFunctions;
+        }
+
+        @Override
+        public synchronized int overBudgetFunctionCount() {
+            return overBudgetFunctions;
+        }
+
+        private void slice(LazyFunction function) {
+            if (function.sliced) {
+                return;
+            }
+            function.sliced = true;
+            slicedFunctions++;
+            Map<String, SliceProfile> visibleGlobals = new HashMap<>();
+            for (int i = 0; i < function.declaredGlobals; i++) {
+                visibleGlobals.put(globalNames.get(i), globals.get(i));
+            }
+            Hashtable<String, Hashtable<String, SliceProfile>> globalVariables = new Hashtable<>();
+            IdentityHashMap<SliceProfile, SliceProfile> globalCopies = new IdentityHashMap<>();
+            visibleGlobals.forEach((globalName, global) -> {
+                SliceProfile copy = new SliceProfile(global.fileName, global.functionName, global.varName,
+                        global.typeName, global.definedPosition, global.function);
+                Hashtable<String, SliceProfile> nameProfile = new Hashtable<>();
+                nameProfile.put(globalName, copy);
+                globalVariables.put(globalName, nameProfile);
+                globalCopies.put(copy, global);
+            });
+
+            SliceGenerator functionGenerator = new SliceGenerator(SliceGenerator.this, globalVariables);
+            try {
+                functionGenerator.analyzeFunction(function.node);
+            } catch (BudgetExceededException e) {
+                overBudgetFunctions++;
+                return;
+            }
+            functionGenerator.sliceProfiles.forEach((sliceKey, profile) ->
+                    sliceProfiles.put(sliceKey, globalCopies.getOrDefault(profile, profile)));
+            globalCopies.keySet().removeIf(copy -> copy.cfunctions.isEmpty() && copy.dependentVars.isEmpty() &&
+                    copy.usedPositions.isEmpty());
+            function.globalCopies = globalCopies;
+        }
+
+        /**
+         * True if the function has an assignment that names a function of the unit, analyzeAssignmentExpr records
+         * an alias for the assignments among them that assign a function pointer.
+         */
+        private boolean mayAssignFunctionPointer(Node functionNode) {
+            for (Node expr : getNodeByName(functionNode, "expr", true)) {
+                List<Node> exprs = asList(expr.getChildNodes());
+                if (exprs.size() != 5 || !SrcmlTag.OPERATOR.matches(exprs.get(2))) {
+                    continue;
+                }
+                String operator = exprs.get(2).getTextContent();
+                if (!operator.equals("=") && !operator.equals("+=")) {
+                    continue;
+                }
+                if (untokenizedFunctionNames) {
+                    return true;
+                }
+                String exprText = expr.getTextContent();
+                for (String token : exprText.split(IDENTIFIER_SEPARATOR)) {
+                    for (String functionName : functionNamesByToken.getOrDefault(token, Collections.emptyList())) {
+                        if (exprText.contains(functionName)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        private String firstToken(String name) {
+            for (String token : name.split(IDENTIFIER_SEPARATOR)) {
+                if (!token.isEmpty()) {
+                    return token;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class LazyFunction {
+        final Node node;
+//      globals declared before the function, the ones it sees
+        final int declaredGlobals;
+        boolean sliced;
+//      copy of a global the function added to, to the global
+        IdentityHashMap<SliceProfile, SliceProfile> globalCopies = new IdentityHashMap<>();
+
+        LazyFunction(Node node, int declaredGlobals) {
+            this.node = node;
+            this.declaredGlobals = declaredGlobals;
+        }
+    }
+
+    private void checkBudget() {
+        if (budgetNanos > 0 && System.nanoTime() - startNanos > budgetNanos) {
+            throw new BudgetExceededException(fileName, budgetNanos);
+        }
+    }
+
+    /**
+     * Slicing a unit took longer than its budget, none of its slice profiles are kept. For a function sliced on
+     * demand only the function's profiles are left out.
+     */
+    public static final class BudgetExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public BudgetExceededException(String fileName, long budgetNanos) {
+            super(fileName + " exceeded the slicing budget of " +
+                    TimeUnit.NANOSECONDS.toMillis(budgetNanos) + "ms");
+        }
+    }
 }
@@ -0,0 +1,175 @@
+package com.noble;
+
+import com.noble.models.SliceProfile;
+import com.noble.models.SliceProfilesInfo;
+import com.noble.util.SrcmlCache;
+import com.noble.util.XmlUtil;
+import org.w3c.dom.Node;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link SliceGenerator} for independent srcML units on a fork-join pool. Units must not share a
+ * {@link org.w3c.dom.Document}, the DOM implementation is not safe for concurrent reads. Units submitted with a
+ * content key are restored from the {@link SrcmlCache} snapshot when one exists instead of being sliced again.
+ * Units that take longer than the per-file budget to slice are logged and left out of the collected table.
+ * Units sliced on demand are not stored as snapshots, their profiles are incomplete until the analysis is done.
+ */
+final class SliceScheduler implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+    private final SrcmlCache cache;
+    private final AnalysisMetrics metrics;
+    private final long budgetNanos;
+    private final boolean lazy;
+    private final ConcurrentHashMap<String, Future<SlicedUnit>> submittedUnits = new ConcurrentHashMap<>();
+    private final AtomicInteger restoredUnits = new AtomicInteger();
+
+    SliceScheduler(int parallelism, AnalysisMetrics metrics, int budgetMillis, boolean lazy) {
+        this(parallelism, null, metrics, budgetMillis, lazy);
+    }
+
+    /**
+     * Units are sliced within {@code budgetMillis} each, 0 for no budget. With {@code lazy} set the functions of
+     * C and C++ units are only indexed, see {@link SliceGenerator#SliceGenerator(Node, String, long, boolean)}.
+     */
+    SliceScheduler(int parallelism, SrcmlCache cache, AnalysisMetrics metrics, int budgetMillis, boolean lazy) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        this.cache = cache;
+        this.metrics = metrics;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.lazy = lazy;
+    }
+
+    void submit(String sourceFilePath, Node unitNode) {
+        submit(sourceFilePath, null, unitNode);
+    }
+
+    void submit(String sourceFilePath, String contentKey, Node unitNode) {
+        submittedUnits.put(sourceFilePath, pool.submit(() -> {
+            AnalysisMetrics.Stopwatch stopwatch = AnalysisMetrics.start();
+            SliceProfilesInfo profilesInfo = null;
+            if (cache != null && contentKey != null) {
+                profilesInfo = restore(contentKey, sourceFilePath);
+            }
+            if (profilesInfo == null) {
+                profilesInfo = slice(sourceFilePath, unitNode, budgetNanos, lazy);
+                if (profilesInfo != null && profilesInfo.functionSlicer == null && cache != null &&
+                        contentKey != null) {
+                    store(contentKey, sourceFilePath, profilesInfo);
+                }
+            }
+            long elapsedNanos = stopwatch.elapsedNanos();
+            record(metrics, stopwatch, sourceFilePath, unitNode, profilesInfo);
+            return new SlicedUnit(profilesInfo, elapsedNanos);
+        }));
+    }
+
+    /**
+     * Slices the unit, or logs it and returns null when slicing takes longer than {@code budgetNanos}.
+     */
+    static SliceProfilesInfo slice(String sourceFilePath, Node unitNode, long budgetNanos, boolean lazy) {
+        try {
+            return new SliceGenerator(unitNode, sourceFilePath, budgetNanos, lazy).generate();
+        } catch (SliceGenerator.BudgetExceededException e) {
+            System.out.println("Skipping " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Records the slicing of a unit that started with the stopwatch, in the slice phase and in the cost of its file.
+     */
+    static void record(AnalysisMetrics metrics, AnalysisMetrics.Stopwatch stopwatch, String sourceFilePath,
+                       Node unitNode, SliceProfilesInfo profilesInfo) {
+        long elapsedNanos = stopwatch.elapsedNanos();
+        AnalysisMetrics.Phase slice = metrics.phase(AnalysisMetrics.SLICE);
+        slice.add(stopwatch);
+        slice.count("units", 1);
+        if (profilesInfo == null) {
+            slice.count("overBudget", 1);
+            metrics.file(sourceFilePath).sliced(elapsedNanos, XmlUtil.countNodes(unitNode), 0, true);
+            return;
+        }
+        long cfunctions = 0;
+        for (SliceProfile profile : profilesInfo.sliceProfiles.values()) {
+            cfunctions += profile.cfunctions.size();
+        }
+        slice.count("profiles", profilesInfo.sliceProfiles.size());
+        slice.count("cfunctions", cfunctions);
+        metrics.file(sourceFilePath).sliced(elapsedNanos, XmlUtil.countNodes(unitNode),
+                profilesInfo.sliceProfiles.size(), false);
+    }
+
+    private SliceProfilesInfo restore(String contentKey, String sourceFilePath) {
+        try {
+            SliceProfilesInfo profilesInfo = cache.loadProfiles(contentKey, sourceFilePath);
+            if (profilesInfo != null) {
+                restoredUnits.incrementAndGet();
+                metrics.phase(AnalysisMetrics.SLICE).count("restoredUnits", 1);
+            }
+            return profilesInfo;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Slicing " + sourceFilePath + " again, its snapshot cannot be restored: " + e);
+            metrics.phase(AnalysisMetrics.SLICE).count("snapshotErrors", 1);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the snapshot of a sliced unit. A snapshot that cannot be written is logged, the unit keeps its profiles
+     * and is sliced again on the next scan.
+     */
+    private void store(String contentKey, String sourceFilePath, SliceProfilesInfo profilesInfo) {
+        try {
+            cache.storeProfiles(contentKey, sourceFilePath, profilesInfo);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Waits for all submitted units and merges them in file name order, so the resulting table does not
+     * depend on which worker finished first.
+     */
+    void collect(Map<String, SliceProfilesInfo> sliceProfilesInfo) throws InterruptedException, ExecutionException {
+        long collectStart = System.nanoTime();
+        long totalNanos = 0;
+        int slicedUnits = 0;
+        int skippedUnits = 0;
+        for (String sourceFilePath : new TreeSet<>(submittedUnits.keySet())) {
+            SlicedUnit slicedUnit = submittedUnits.get(sourceFilePath).get();
+            totalNanos += slicedUnit.elapsedNanos;
+            if (slicedUnit.profilesInfo == null) {
+                skippedUnits++;
+                continue;
+            }
+            sliceProfilesInfo.put(sourceFilePath, slicedUnit.profilesInfo);
+            slicedUnits++;
+        }
+        submittedUnits.clear();
+
+        System.out.println("Sliced " + slicedUnits + " units (" + restoredUnits.getAndSet(0) +
+                " restored from snapshots, " + skippedUnits + " over budget) on " + pool.getParallelism() +
+                " threads, " + TimeUnit.NANOSECONDS.toMillis(totalNanos) + "ms of slicing, waited " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - collectStart) + "ms for completion");
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private static final class SlicedUnit {
+        private final SliceProfilesInfo profilesInfo;
+        private final long elapsedNanos;
+
+        private SlicedUnit(SliceProfilesInfo profilesInfo, long elapsedNanos) {
+            this.profilesInfo = profilesInfo;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
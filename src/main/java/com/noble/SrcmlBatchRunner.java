@@ -0,0 +1,174 @@
+package com.noble;
+
+import com.noble.util.SrcmlCache;
+import org.w3c.dom.Node;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts a project with a bounded pool of srcML processes, each working on a batch of files. Units are
+ * handed to the consumer as soon as their batch streams them out, so conversion and slicing overlap.
+ * Files whose content is already in the {@link SrcmlCache} are not converted again.
+ */
+final class SrcmlBatchRunner {
+
+    private static final List<String> SOURCE_EXTENSIONS = Arrays.asList(".java", ".c", ".h", ".i", ".cpp", ".cc",
+            ".cxx", ".c++", ".hpp", ".hh", ".hxx", ".h++", ".tcc");
+
+    private final String srcmlExecutable;
+    private final int processes;
+    private final int batchSize;
+    private final SrcmlCache cache;
+    private final AnalysisMetrics metrics;
+
+    SrcmlBatchRunner(String srcmlExecutable, int processes, int batchSize, SrcmlCache cache,
+                     AnalysisMetrics metrics) {
+        this.srcmlExecutable = srcmlExecutable;
+        this.processes = Math.max(1, processes);
+        this.batchSize = Math.max(1, batchSize);
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    void convert(Path projectLocation, UnitConsumer unitConsumer)
+            throws IOException, InterruptedException, ExecutionException {
+        convert(listSourceFiles(projectLocation), unitConsumer);
+    }
+
+    void convert(List<String> sourceFiles, UnitConsumer unitConsumer)
+            throws InterruptedException, ExecutionException {
+        Map<String, String> cacheKeys = new ConcurrentHashMap<>();
+        ExecutorService processPool = Executors.newFixedThreadPool(processes);
+        try {
+            List<String> convertedFiles = sourceFiles;
+            if (cache != null) {
+                List<Future<String>> lookups = new ArrayList<>();
+                for (String sourceFile : sourceFiles) {
+                    lookups.add(processPool.submit(() -> {
+                        String key = cache.key(Path.of(sourceFile));
+                        AnalysisMetrics.Stopwatch stopwatch = AnalysisMetrics.start();
+                        Node cachedUnit = load(sourceFile, key);
+                        metrics.phase(AnalysisMetrics.PARSE).add(stopwatch);
+                        if (cachedUnit != null) {
+                            unitConsumer.accept(sourceFile, key, cachedUnit);
+                            return null;
+                        }
+                        cacheKeys.put(sourceFile, key);
+                        return sourceFile;
+                    }));
+                }
+                convertedFiles = new ArrayList<>();
+                for (Future<String> lookup : lookups) {
+                    String missedFile = lookup.get();
+                    if (missedFile != null) {
+                        convertedFiles.add(missedFile);
+                    }
+                }
+                System.out.println("srcML cache: " + (sourceFiles.size() - convertedFiles.size()) + " hits, " +
+                        convertedFiles.size() + " misses");
+                metrics.phase(AnalysisMetrics.SRCML).count("cacheHits", sourceFiles.size() - convertedFiles.size());
+                metrics.phase(AnalysisMetrics.SRCML).count("cacheMisses", convertedFiles.size());
+            }
+
+            BiConsumer<String, Node> cachingConsumer = (sourceFile, unitNode) -> {
+                String key = cacheKeys.get(sourceFile);
+                if (key != null) {
+                    try {
+                        cache.store(key, unitNode);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+                unitConsumer.accept(sourceFile, key, unitNode);
+            };
+            List<Future<?>> batches = new ArrayList<>();
+            for (int from = 0; from < convertedFiles.size(); from += batchSize) {
+                List<String> batch = convertedFiles.subList(from, Math.min(from + batchSize, convertedFiles.size()));
+                batches.add(processPool.submit(() -> {
+                    convertBatch(batch, cachingConsumer);
+                    return null;
+                }));
+            }
+            for (Future<?> batch : batches) {
+                batch.get();
+            }
+        } finally {
+            processPool.shutdownNow();
+        }
+    }
+
+    /**
+     * The cached unit of the file, null on a miss. An entry that cannot be read is logged, deleted and treated as
+     * a miss, so a damaged cache costs a conversion and never the scan.
+     */
+    private Node load(String sourceFile, String key) {
+        try {
+            return cache.load(key);
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            System.err.println("Discarding the srcML cache entry of " + sourceFile + ": " + e);
+            metrics.phase(AnalysisMetrics.SRCML).count("cacheErrors", 1);
+            try {
+                cache.remove(key);
+            } catch (IOException removeFailure) {
+                removeFailure.printStackTrace();
+            }
+            return null;
+        }
+    }
+
+    static List<String> listSourceFiles(Path projectLocation) throws IOException {
+        if (Files.isRegularFile(projectLocation)) {
+            return Collections.singletonList(projectLocation.toString());
+        }
+        try (Stream<Path> paths = Files.walk(projectLocation)) {
+            return paths.filter(Files::isRegularFile).
+                    filter(SrcmlBatchRunner::isSourceFile).
+                    map(Path::toString).
+                    sorted().
+                    collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isSourceFile(Path path) {
+        String fileName = path.getFileName().toString().toLowerCase();
+        for (String extension : SOURCE_EXTENSIONS) {
+            if (fileName.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    interface UnitConsumer {
+        void accept(String sourceFile, String contentKey, Node unitNode);
+    }
+
+    private void convertBatch(List<String> batch, BiConsumer<String, Node> unitConsumer) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(srcmlExecutable);
+        command.addAll(batch);
+        command.add("--position");
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        try (InputStream in = process.getInputStream()) {
+            metrics.readUnits(in, unitConsumer);
+        }
+        metrics.phase(AnalysisMetrics.SRCML).count("batches", 1);
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            System.err.println("srcML exited with " + exitCode + " for batch starting at " + batch.get(0));
+        }
+    }
+}
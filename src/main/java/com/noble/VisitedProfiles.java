@@ -0,0 +1,52 @@
+package com.noble;
+
+import com.noble.models.SliceProfile;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Slice profiles the inter-procedural walk has already analyzed. Profiles are compared by identity, as the list
+ * this replaced did, but membership is a hash lookup instead of a scan. Counts the visits and the revisits the
+ * walk skipped, which tells how much redundant work the fixpoint does.
+ */
+final class VisitedProfiles {
+
+    private final Set<SliceProfile> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long visits;
+    private long skippedRevisits;
+
+    /**
+     * Marks the profile as analyzed.
+     */
+    void visit(SliceProfile profile) {
+        visited.add(profile);
+        visits++;
+    }
+
+    /**
+     * True, and counted as a skipped revisit, if the profile was analyzed already.
+     */
+    boolean skip(SliceProfile profile) {
+        if (visited.contains(profile)) {
+            skippedRevisits++;
+            return true;
+        }
+        return false;
+    }
+
+    long visits() {
+        return visits;
+    }
+
+    long skippedRevisits() {
+        return skippedRevisits;
+    }
+
+    void clear() {
+        visited.clear();
+        visits = 0;
+        skippedRevisits = 0;
+    }
+}
@@ -3,7 +3,7 @@ package com.noble.models;
 public class ArgumentNamePos extends NamePos {
     private final boolean isOptional;
 
-    public ArgumentNamePos(String name, String type, String pos, boolean isPointer, boolean isOptional) {
+    public ArgumentNamePos(String name, String type, long pos, boolean isPointer, boolean isOptional) {
         super(name, type, pos, isPointer);
         this.isOptional = isOptional;
     }
@@ -1,6 +1,7 @@
 package com.noble.models;
 
-import org.w3c.dom.Node;
+import com.noble.util.Position;
+import com.noble.util.SymbolTable;
 
 import java.util.ArrayList;
 import java.util.Objects;
@@ -9,41 +10,50 @@ public final class CFunction {
 
     private final int argPosIndex;
     private final String name;
-    private final String position;
+    private final long position;
     private final String enclFunctionName;
-    private final Node enclFunctionNode;
+    private final FunctionScope enclFunction;
     private final ArrayList<ArgumentNamePos> funcArgs;
+    private final String filePath;
 
-    public CFunction(String name, String position, int argPosIndex, String enclFunctionName, Node enclFunctionNode) {
-        this.name = name;
+    public CFunction(String name, long position, int argPosIndex, String enclFunctionName, FunctionScope enclFunction) {
+        this.name = SymbolTable.intern(name);
         this.position = position;
         this.argPosIndex = argPosIndex;
-        this.enclFunctionName = enclFunctionName;
-        this.enclFunctionNode = enclFunctionNode;
+        this.enclFunctionName = SymbolTable.intern(enclFunctionName);
+        this.enclFunction = enclFunction;
         this.funcArgs = null;
+        this.filePath = null;
     }
 
-    public CFunction(String name, String position, int argPosIndex, String enclFunctionName, Node enclFunctionNode,
+    public CFunction(String name, long position, int argPosIndex, String enclFunctionName, FunctionScope enclFunction,
                      ArrayList<ArgumentNamePos> funcArgs) {
-        this.name = name;
+        this(name, position, argPosIndex, enclFunctionName, enclFunction, funcArgs, null);
+    }
+
+    public CFunction(String name, long position, int argPosIndex, String enclFunctionName, FunctionScope enclFunction,
+                     ArrayList<ArgumentNamePos> funcArgs, String filePath) {
+        this.name = SymbolTable.intern(name);
         this.position = position;
         this.argPosIndex = argPosIndex;
-        this.enclFunctionName = enclFunctionName;
-        this.enclFunctionNode = enclFunctionNode;
+        this.enclFunctionName = SymbolTable.intern(enclFunctionName);
+        this.enclFunction = enclFunction;
         this.funcArgs = funcArgs;
+        this.filePath = SymbolTable.intern(filePath);
     }
 
-    public CFunction(int argPosIndex, String enclFunctionName, Node enclFunctionNode) {
+    public CFunction(int argPosIndex, String enclFunctionName, FunctionScope enclFunction) {
         this.argPosIndex = argPosIndex;
-        this.enclFunctionName = enclFunctionName;
-        this.enclFunctionNode = enclFunctionNode;
+        this.enclFunctionName = SymbolTable.intern(enclFunctionName);
+        this.enclFunction = enclFunction;
         this.name = null;
-        this.position = null;
+        this.position = Position.NONE;
         this.funcArgs = null;
+        this.filePath = null;
     }
 
-    public Node getEnclFunctionNode() {
-        return enclFunctionNode;
+    public FunctionScope getEnclFunction() {
+        return enclFunction;
     }
 
     public String getEnclFunctionName() {
@@ -58,7 +68,11 @@ public final class CFunction {
         return funcArgs;
     }
 
-    public String getPosition() {
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public long getPosition() {
         return position;
     }
 
@@ -76,17 +90,16 @@ public final class CFunction {
         if (!this.name.equals(other.name)) {
             return false;
         }
-        assert this.position != null;
-        return this.position.equals(other.position) &&
+        return this.position == other.position &&
                 this.argPosIndex == other.argPosIndex && this.enclFunctionName.equals(other.enclFunctionName) &&
-                this.enclFunctionNode == other.enclFunctionNode;
+                this.enclFunction == other.enclFunction;
     }
 
     @Override
     public int hashCode() {
         int result = 17;
         result = 31 * result + Objects.requireNonNull(this.name).hashCode();
-        result = 31 * result + Objects.requireNonNull(this.position).hashCode();
+        result = 31 * result + Position.hash(this.position);
         result = 31 * result + this.enclFunctionName.hashCode();
         return result;
     }
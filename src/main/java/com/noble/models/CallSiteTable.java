@@ -0,0 +1,37 @@
+package com.noble.models;
+
+import java.util.*;
+
+/**
+ * Calls and constructor declarations of one function, keyed by callee name. A call only needs the fewest
+ * arguments it was made with, a constructor declaration has to match the parameter count exactly.
+ */
+public final class CallSiteTable {
+    private final Map<String, Integer> fewestCallArguments = new HashMap<>();
+    private final Map<String, Set<Integer>> constructorArgumentCounts = new HashMap<>();
+
+    public void addCall(String calleeName, int argumentCount) {
+        fewestCallArguments.merge(calleeName, argumentCount, Math::min);
+    }
+
+    public void addConstructorCall(String typeName, int argumentCount) {
+        constructorArgumentCounts.computeIfAbsent(typeName, key -> new HashSet<>()).add(argumentCount);
+    }
+
+    public boolean accepts(String calleeName, int parameterCount) {
+        Integer fewestArguments = fewestCallArguments.get(calleeName);
+        if (fewestArguments != null && fewestArguments <= parameterCount) {
+            return true;
+        }
+        Set<Integer> argumentCounts = constructorArgumentCounts.get(calleeName);
+        return argumentCounts != null && argumentCounts.contains(parameterCount);
+    }
+
+    public Map<String, Integer> getCallArgumentCounts() {
+        return Collections.unmodifiableMap(fewestCallArguments);
+    }
+
+    public Map<String, Set<Integer>> getConstructorArgumentCounts() {
+        return Collections.unmodifiableMap(constructorArgumentCounts);
+    }
+}
@@ -1,16 +1,17 @@
 package com.noble.models;
 
+import com.noble.util.Position;
 import com.noble.util.XmlUtil;
 
 public class DataTuple {
     public XmlUtil.DataAccessType accessType = null;
-    public String accessPos = null;
+    public long accessPos = Position.NONE;
     public int inDegree = -1;
     public EnclNamePosTuple node = null;
     public String a = null;
     public String b = null;
 
-    public DataTuple(XmlUtil.DataAccessType accessType, String accessPos) {
+    public DataTuple(XmlUtil.DataAccessType accessType, long accessPos) {
         this.accessType = accessType;
         this.accessPos = accessPos;
     }
@@ -1,20 +1,25 @@
 package com.noble.models;
 
+import com.noble.util.Position;
+import com.noble.util.SymbolTable;
+
 public final class EnclNamePosTuple {
     private final String varName;
     private final String functionName;
     private final String fileName;
-    private final String definedPosition;
+    private final long definedPosition;
+    private final int hash;
 
     @Override
     public String toString() {
         String mode = "not_testing";
         String ret_test = "XXXX" + this.varName + "XXXX" + this.functionName + "XXXX" +
                 this.fileName.replaceAll(":", "COLON").replaceAll("\\.", "DOT").
-                        replaceAll("/", "SLASH") + "XXXX" + this.definedPosition;
+                        replaceAll("/", "SLASH") + "XXXX" + Position.format(this.definedPosition);
         //noinspection ConstantConditions
         if (!mode.equals("testing"))
-            return this.varName + "," + this.functionName + "," + this.fileName + "," + this.definedPosition;
+            return this.varName + "," + this.functionName + "," + this.fileName + "," +
+                    Position.format(this.definedPosition);
         else
             return ret_test.replaceAll("\\W", "");
     }
@@ -26,25 +31,26 @@ public final class EnclNamePosTuple {
         }
         EnclNamePosTuple other = (EnclNamePosTuple) obj;
         return this.varName.equals(other.varName) && this.functionName.equals(other.functionName) &&
-                this.fileName.equals(other.fileName) && this.definedPosition.equals(other.definedPosition);
+                this.fileName.equals(other.fileName) && this.definedPosition == other.definedPosition;
     }
 
     @Override
     public int hashCode() {
-        int result = 17;
-        result = 31 * result + this.varName.hashCode();
-        result = 31 * result + this.functionName.hashCode();
-        result = 31 * result + this.fileName.hashCode();
-        result = 31 * result + this.definedPosition.hashCode();
-        return result;
+        return hash;
     }
 
-    public EnclNamePosTuple(String varName, String functionName, String fileName, String definedPosition) {
+    public EnclNamePosTuple(String varName, String functionName, String fileName, long definedPosition) {
         assert functionName != null;
-        this.varName = varName;
-        this.functionName = functionName;
-        this.fileName = fileName;
+        this.varName = SymbolTable.intern(varName);
+        this.functionName = SymbolTable.intern(functionName);
+        this.fileName = SymbolTable.intern(fileName);
         this.definedPosition = definedPosition;
+        int result = 17;
+        result = 31 * result + varName.hashCode();
+        result = 31 * result + functionName.hashCode();
+        result = 31 * result + fileName.hashCode();
+        result = 31 * result + Position.hash(definedPosition);
+        this.hash = result;
     }
 
     public String varName() {
@@ -60,7 +66,7 @@ public final class EnclNamePosTuple {
     }
 
     @SuppressWarnings("unused")
-    public String definedPosition() {
+    public long definedPosition() {
         return this.definedPosition;
     }
 }
@@ -0,0 +1,24 @@
+package com.noble.models;
+
+/**
+ * A function, static block or macro of a unit, with what the analysis reads of it. Slice profiles and calls refer
+ * to the function they are in through it instead of through its node, so sliced units do not keep their trees.
+ * Compared by reference, one per function of a unit.
+ */
+public final class FunctionScope {
+    private final FunctionSignature signature;
+    private final CallSiteTable callSites;
+
+    public FunctionScope(FunctionSignature signature, CallSiteTable callSites) {
+        this.signature = signature;
+        this.callSites = callSites;
+    }
+
+    public FunctionSignature getSignature() {
+        return signature;
+    }
+
+    public CallSiteTable getCallSites() {
+        return callSites;
+    }
+}
@@ -0,0 +1,75 @@
+package com.noble.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class FunctionSignature {
+    private final ArrayList<ArgumentNamePos> parameters;
+    private final String[] parameterNames;
+    private final long[] parameterPositions;
+    private final String[] parameterTypes;
+    private final boolean[] optionalParameters;
+    private final List<String> specifiers;
+
+    public FunctionSignature(ArrayList<ArgumentNamePos> parameters, List<String> specifiers) {
+        this.parameters = parameters;
+        this.specifiers = Collections.unmodifiableList(specifiers);
+        int parameterCount = parameters.size();
+        this.parameterNames = new String[parameterCount];
+        this.parameterPositions = new long[parameterCount];
+        this.parameterTypes = new String[parameterCount];
+        this.optionalParameters = new boolean[parameterCount];
+        for (int i = 0; i < parameterCount; i++) {
+            ArgumentNamePos parameter = parameters.get(i);
+            parameterNames[i] = parameter.getName();
+            parameterPositions[i] = parameter.getPos();
+            parameterTypes[i] = parameter.getType();
+            optionalParameters[i] = parameter.isOptional();
+        }
+    }
+
+    public int parameterCount() {
+        return parameterNames.length;
+    }
+
+    public String parameterName(int index) {
+        return parameterNames[index];
+    }
+
+    public long parameterPosition(int index) {
+        return parameterPositions[index];
+    }
+
+    public String parameterType(int index) {
+        return parameterTypes[index];
+    }
+
+    public boolean isOptional(int index) {
+        return optionalParameters[index];
+    }
+
+    public int indexOfParameter(String name) {
+        for (int i = 0; i < parameterNames.length; i++) {
+            if (parameterNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return parameterNames.length;
+    }
+
+    /**
+     * Shared parameter list, callers must not modify it.
+     */
+    public ArrayList<ArgumentNamePos> getParameters() {
+        return parameters;
+    }
+
+    public List<String> getSpecifiers() {
+        return specifiers;
+    }
+
+    public boolean hasSpecifier(String specifier) {
+        return specifiers.contains(specifier);
+    }
+}
@@ -1,14 +1,17 @@
 package com.noble.models;
 
+import com.noble.util.Position;
+import com.noble.util.SymbolTable;
+
 public class NamePos {
     private final String name;
     private final String type;
-    private final String pos;
+    private final long pos;
     private final boolean isPointer;
 
-    public NamePos(String name, String type, String pos, boolean isPointer) {
-        this.name = name;
-        this.type = type;
+    public NamePos(String name, String type, long pos, boolean isPointer) {
+        this.name = SymbolTable.intern(name);
+        this.type = SymbolTable.intern(type);
         this.pos = pos;
         this.isPointer = isPointer;
     }
@@ -17,7 +20,7 @@ public class NamePos {
         return name;
     }
 
-    public String getPos() {
+    public long getPos() {
         return pos;
     }
 
@@ -37,7 +40,7 @@ public class NamePos {
         }
         NamePos other = (NamePos) obj;
         return this.name.equals(other.name) && this.type.equals(other.type) &&
-                this.pos.equals(other.pos) && this.isPointer == other.isPointer;
+                this.pos == other.pos && this.isPointer == other.isPointer;
     }
 
     @Override
@@ -45,7 +48,7 @@ public class NamePos {
         int result = 17;
         result = 31 * result + this.name.hashCode();
         result = 31 * result + this.type.hashCode();
-        result = 31 * result + this.pos.hashCode();
+        result = 31 * result + Position.hash(this.pos);
         return result;
     }
 
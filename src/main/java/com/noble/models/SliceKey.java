@@ -0,0 +1,117 @@
+package com.noble.models;
+
+import com.noble.util.Position;
+import com.noble.util.SymbolTable;
+
+/**
+ * Key of a slice profile: variable name, position, enclosing function and file, held as canonical
+ * {@link SymbolTable} symbols and a packed position. It replaces the {@code name%pos%function%file} strings the
+ * tables used to be keyed by. The hash is the hash of that string, computed without building it, so hash tables
+ * keep the iteration order the analysis has always seen. Keys of profiles are created with the constructor, keys
+ * to look profiles up with {@link #lookup}.
+ */
+public final class SliceKey {
+    private static final int SEPARATOR = '%';
+
+    private final String name;
+    private final long position;
+    private final String functionName;
+    private final String fileName;
+    private final int hash;
+
+    public SliceKey(String name, long position, String functionName, String fileName) {
+//      string concatenation turned a missing part into "null", keys keep doing that
+        this.name = SymbolTable.intern(String.valueOf(name));
+        this.position = position;
+        this.functionName = SymbolTable.intern(String.valueOf(functionName));
+        this.fileName = SymbolTable.intern(String.valueOf(fileName));
+        this.hash = hash(this.name, position, this.functionName, this.fileName);
+    }
+
+    private SliceKey(String name, long position, String functionName, String fileName, int hash) {
+        this.name = name;
+        this.position = position;
+        this.functionName = functionName;
+        this.fileName = fileName;
+        this.hash = hash;
+    }
+
+    /**
+     * Key equal to the one created with the same parts, or null if no such key can exist because one of its
+     * symbols is not in use. Looking up a missing profile adds no symbols.
+     */
+    public static SliceKey lookup(String name, long position, String functionName, String fileName) {
+        String canonicalName = SymbolTable.lookup(String.valueOf(name));
+        String canonicalFunctionName = SymbolTable.lookup(String.valueOf(functionName));
+        String canonicalFileName = SymbolTable.lookup(String.valueOf(fileName));
+        if (canonicalName == null || canonicalFunctionName == null || canonicalFileName == null) {
+            return null;
+        }
+        return new SliceKey(canonicalName, position, canonicalFunctionName, canonicalFileName,
+                hash(canonicalName, position, canonicalFunctionName, canonicalFileName));
+    }
+
+    private static int hash(String name, long position, String functionName, String fileName) {
+        int result = append(0, name);
+        result = append(31 * result + SEPARATOR, position);
+        result = append(31 * result + SEPARATOR, functionName);
+        return append(31 * result + SEPARATOR, fileName);
+    }
+
+    private static int append(int hash, String part) {
+        return hash * power31(part.length()) + part.hashCode();
+    }
+
+    private static int append(int hash, long position) {
+        return hash * power31(Position.length(position)) + Position.hash(position);
+    }
+
+    private static int power31(int exponent) {
+        int result = 1;
+        int base = 31;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            exponent >>= 1;
+        }
+        return result;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long position() {
+        return position;
+    }
+
+    public String functionName() {
+        return functionName;
+    }
+
+    public String fileName() {
+        return fileName;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof SliceKey)) {
+            return false;
+        }
+        SliceKey other = (SliceKey) obj;
+        return this.hash == other.hash && this.name == other.name && this.position == other.position &&
+                this.functionName == other.functionName && this.fileName == other.fileName;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name + "%" + Position.format(position) + "%" + functionName + "%" + fileName;
+    }
+}
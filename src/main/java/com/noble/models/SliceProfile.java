@@ -1,6 +1,6 @@
 package com.noble.models;
 
-import org.w3c.dom.Node;
+import com.noble.util.SymbolTable;
 
 import java.util.*;
 
@@ -9,29 +9,29 @@ public class SliceProfile {
     public final String functionName;
     public final String varName;
     public final String typeName;
-    public final String definedPosition;
+    public final long definedPosition;
     public final List<SliceVariableAccess> usedPositions = new ArrayList<>();
     public final Set<NamePos> dependentVars = new HashSet<>();
     public final Set<CFunction> cfunctions = new HashSet<>();
-    public final Node functionNode;
+    public final FunctionScope function;
 
     public SliceProfile(String fileName, String functionName, String varName, String typeName,
-                        String definedPosition) {
-        this.fileName = fileName;
-        this.functionName = functionName;
-        this.varName = varName;
-        this.typeName = typeName;
+                        long definedPosition) {
+        this.fileName = SymbolTable.intern(fileName);
+        this.functionName = SymbolTable.intern(functionName);
+        this.varName = SymbolTable.intern(varName);
+        this.typeName = SymbolTable.intern(typeName);
         this.definedPosition = definedPosition;
-        this.functionNode = null;
+        this.function = null;
     }
 
     public SliceProfile(String fileName, String functionName, String varName, String typeName,
-                        String definedPosition, Node functionNode) {
-        this.fileName = fileName;
-        this.functionName = functionName;
-        this.varName = varName;
-        this.typeName = typeName;
+                        long definedPosition, FunctionScope function) {
+        this.fileName = SymbolTable.intern(fileName);
+        this.functionName = SymbolTable.intern(functionName);
+        this.varName = SymbolTable.intern(varName);
+        this.typeName = SymbolTable.intern(typeName);
         this.definedPosition = definedPosition;
-        this.functionNode = functionNode;
+        this.function = function;
     }
 }
@@ -1,26 +1,101 @@
 package com.noble.models;
 
-import org.w3c.dom.Node;
-
+import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
 
+/**
+ * Slice profiles of a unit and the functions they are in. Nothing here refers to the unit's tree, except the
+ * {@link #functionSlicer} of a unit sliced on demand, which slices from it.
+ */
 public class SliceProfilesInfo {
-    public final Hashtable<String, SliceProfile> sliceProfiles;
-    public final Hashtable<FunctionNamePos, Node> functionNodes;
+    public final Hashtable<SliceKey, SliceProfile> sliceProfiles;
+    public final Hashtable<FunctionNamePos, FunctionScope> functions;
     public final Hashtable<String, List<FunctionNamePos>> functionDeclMap;
-    public final Node unitNode;
+    /**
+     * Name of the first class of a Java unit, read while slicing so the analysis does not go back to the tree.
+     */
+    public final String className;
+    /**
+     * Slices the functions of a unit sliced on demand, null when every function was sliced up front. It keeps the
+     * unit's tree.
+     */
+    public final FunctionSlicer functionSlicer;
+
+    public SliceProfilesInfo(Hashtable<SliceKey, SliceProfile> sliceProfiles,
+                                Hashtable<FunctionNamePos, FunctionScope> functions,
+                                Hashtable<String, List<FunctionNamePos>> functionDeclMap, String className) {
+        this(sliceProfiles, functions, functionDeclMap, className, null);
+    }
 
-    public SliceProfilesInfo(Hashtable<String, SliceProfile> sliceProfiles,
-                                Hashtable<FunctionNamePos, Node> functionNodes,
-                                Hashtable<String, List<FunctionNamePos>> functionDeclMap,
-                                Node unitNode) {
+    public SliceProfilesInfo(Hashtable<SliceKey, SliceProfile> sliceProfiles,
+                                Hashtable<FunctionNamePos, FunctionScope> functions,
+                                Hashtable<String, List<FunctionNamePos>> functionDeclMap, String className,
+                                FunctionSlicer functionSlicer) {
         this.sliceProfiles = sliceProfiles;
-        this.functionNodes = functionNodes;
+        this.functions = functions;
         this.functionDeclMap = functionDeclMap;
-        this.unitNode = unitNode;
+        this.className = className;
+        this.functionSlicer = functionSlicer;
+    }
+
+    /**
+     * Profile of the variable, null if there is none. In a unit sliced on demand the functions named like the
+     * variable's function are sliced first.
+     */
+    public SliceProfile profileOf(String name, long position, String functionName, String fileName) {
+        if (functionSlicer != null) {
+            functionSlicer.sliceFunctions(functionName);
+        }
+        SliceKey key = SliceKey.lookup(name, position, functionName, fileName);
+        return key == null ? null : sliceProfiles.get(key);
     }
 
+    /**
+     * Slices every function of a unit sliced on demand. What the functions add to the profiles of the globals is
+     * only there once this returned.
+     */
+    public void sliceAllFunctions() {
+        if (functionSlicer != null) {
+            functionSlicer.sliceAll();
+        }
+    }
 
-}
+    /**
+     * Signature of a function of this unit, slices outside any function have an empty one.
+     */
+    public FunctionSignature signatureOf(FunctionScope function) {
+        if (function == null) {
+            return new FunctionSignature(new ArrayList<>(), new ArrayList<>());
+        }
+        return function.getSignature();
+    }
 
+    /**
+     * Call sites of a function of this unit, slices outside any function have none.
+     */
+    public CallSiteTable callSitesOf(FunctionScope function) {
+        if (function == null) {
+            return new CallSiteTable();
+        }
+        return function.getCallSites();
+    }
+
+    /**
+     * Slices the function bodies of a unit on demand, safe to call from several threads.
+     */
+    public interface FunctionSlicer {
+        void sliceFunctions(String functionName);
+
+        void sliceAll();
+
+        int functionCount();
+
+        int slicedFunctionCount();
+
+        /**
+         * Functions whose slicing took longer than the budget, they add no profiles.
+         */
+        int overBudgetFunctionCount();
+    }
+}
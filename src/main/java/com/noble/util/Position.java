@@ -0,0 +1,163 @@
+package com.noble.util;
+
+/**
+ * Source positions packed into a {@code long}, the line in the high and the column in the low 32 bits. srcML
+ * writes them as {@code line:col} strings; they are parsed once when a node is read and only formatted back when
+ * output is written. {@link #hash(long)} is the hash of the formatted string, so tables keyed by positions
+ * iterate in the order they did when positions were strings.
+ */
+public final class Position {
+
+    /**
+     * No position, formats as the empty string.
+     */
+    public static final long NONE = -1L;
+
+    private static final int NO_COLUMN = -1;
+
+    private Position() {
+    }
+
+    public static long of(int line, int column) {
+        return ((long) line << 32) | (column & 0xffffffffL);
+    }
+
+    /**
+     * Position with a line only, formats without the column.
+     */
+    public static long ofLine(int line) {
+        return of(line, NO_COLUMN);
+    }
+
+    public static int line(long position) {
+        return (int) (position >> 32);
+    }
+
+    /**
+     * Column of the position, -1 when it was written without one.
+     */
+    public static int column(long position) {
+        return (int) position;
+    }
+
+    /**
+     * Parses {@code line:col} or a bare {@code line}. Null, empty and malformed positions become {@link #NONE}.
+     */
+    public static long parse(String position) {
+        if (position == null || position.isEmpty()) {
+            return NONE;
+        }
+        int separator = position.indexOf(':');
+        int lineEnd = separator < 0 ? position.length() : separator;
+        int line = parseNumber(position, 0, lineEnd);
+        int column = separator < 0 ? NO_COLUMN : parseNumber(position, separator + 1, position.length());
+        if (line < 0 || (separator >= 0 && column < 0)) {
+            return NONE;
+        }
+        return of(line, column);
+    }
+
+    /**
+     * Same as {@link #parse(String)} for the characters from {@code start} to {@code end}, without a string.
+     */
+    public static long parse(char[] position, int start, int end) {
+        if (start == end) {
+            return NONE;
+        }
+        int separator = start;
+        while (separator < end && position[separator] != ':') {
+            separator++;
+        }
+        int line = parseNumber(position, start, separator);
+        int column = separator == end ? NO_COLUMN : parseNumber(position, separator + 1, end);
+        if (line < 0 || (separator < end && column < 0)) {
+            return NONE;
+        }
+        return of(line, column);
+    }
+
+    private static int parseNumber(char[] text, int start, int end) {
+        if (start == end || end - start > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int parseNumber(String text, int start, int end) {
+        if (start == end || end - start > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    public static String format(long position) {
+        if (position == NONE) {
+            return "";
+        }
+        int column = column(position);
+        return column == NO_COLUMN ? Integer.toString(line(position)) : line(position) + ":" + column;
+    }
+
+    /**
+     * {@code format(position).hashCode()}, without formatting.
+     */
+    public static int hash(long position) {
+        if (position == NONE) {
+            return 0;
+        }
+        int hash = appendDigits(0, line(position));
+        int column = column(position);
+        return column == NO_COLUMN ? hash : appendDigits(31 * hash + ':', column);
+    }
+
+    /**
+     * {@code format(position).length()}, without formatting.
+     */
+    public static int length(long position) {
+        if (position == NONE) {
+            return 0;
+        }
+        int column = column(position);
+        return digits(line(position)) + (column == NO_COLUMN ? 0 : 1 + digits(column));
+    }
+
+    private static int appendDigits(int hash, int value) {
+        for (int divisor = tenPower(digits(value) - 1); divisor > 0; divisor /= 10) {
+            hash = 31 * hash + '0' + value / divisor % 10;
+        }
+        return hash;
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static int tenPower(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+}
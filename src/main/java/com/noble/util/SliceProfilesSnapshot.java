@@ -0,0 +1,382 @@
+package com.noble.util;
+
+import com.noble.models.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compact binary form of a {@link SliceProfilesInfo}. The functions of the unit are written once, with their
+ * signature and call sites, and referenced by index, so a snapshot restores without the unit's tree. All strings
+ * go through a per-snapshot string table, positions are written packed. Profiles embed their file name, so a
+ * snapshot only restores for the path it was written for. Tables grow as they are read rather than by the counts
+ * the snapshot claims, so a damaged snapshot fails with an {@link IOException}.
+ */
+public final class SliceProfilesSnapshot {
+
+    public static final int FORMAT_VERSION = 7;
+    private static final int MAGIC = 0x53425350;
+    private static final int NONE = -1;
+
+    private SliceProfilesSnapshot() {
+    }
+
+    public static void write(SliceProfilesInfo profilesInfo, String sourceFilePath, OutputStream out)
+            throws IOException {
+        SnapshotWriter writer = new SnapshotWriter();
+        writer.writeProfilesInfo(profilesInfo);
+        writer.writeTo(new DataOutputStream(out), sourceFilePath);
+    }
+
+    public static SliceProfilesInfo read(InputStream in, String sourceFilePath) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != FORMAT_VERSION) {
+            throw new IOException("Not a slice profiles snapshot of version " + FORMAT_VERSION);
+        }
+        if (!data.readUTF().equals(sourceFilePath)) {
+            return null;
+        }
+        try {
+            return new SnapshotReader(data).readProfilesInfo();
+        } catch (RuntimeException e) {
+            throw new IOException("Damaged slice profiles snapshot of " + sourceFilePath, e);
+        }
+    }
+
+    private static final class SnapshotWriter {
+        private final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        private final DataOutputStream body = new DataOutputStream(bodyBytes);
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<FunctionScope, Integer> functionIds = new IdentityHashMap<>();
+
+        private void writeProfilesInfo(SliceProfilesInfo profilesInfo) throws IOException {
+//          several slice keys share one profile, the profiles are written once and referenced by index
+            Map<SliceProfile, Integer> profileIds = new IdentityHashMap<>();
+            List<SliceProfile> profiles = new ArrayList<>();
+            for (SliceProfile profile : profilesInfo.sliceProfiles.values()) {
+                if (!profileIds.containsKey(profile)) {
+                    profileIds.put(profile, profiles.size());
+                    profiles.add(profile);
+                }
+            }
+
+//          the functions come first, profiles and calls refer to them by index
+            List<FunctionScope> functions = new ArrayList<>();
+            for (FunctionScope function : profilesInfo.functions.values()) {
+                addFunction(function, functions);
+            }
+            for (SliceProfile profile : profiles) {
+                addFunction(profile.function, functions);
+                for (CFunction cfunction : profile.cfunctions) {
+                    addFunction(cfunction.getEnclFunction(), functions);
+                }
+            }
+            body.writeInt(functions.size());
+            for (FunctionScope function : functions) {
+                writeSignature(function.getSignature());
+                writeCallSites(function.getCallSites());
+            }
+
+            body.writeInt(profilesInfo.functions.size());
+            for (Map.Entry<FunctionNamePos, FunctionScope> function : profilesInfo.functions.entrySet()) {
+                writeFunctionNamePos(function.getKey());
+                writeFunction(function.getValue());
+            }
+
+            body.writeInt(profilesInfo.functionDeclMap.size());
+            for (Map.Entry<String, List<FunctionNamePos>> alias : profilesInfo.functionDeclMap.entrySet()) {
+                writeString(alias.getKey());
+                body.writeInt(alias.getValue().size());
+                for (FunctionNamePos functionNamePos : alias.getValue()) {
+                    writeFunctionNamePos(functionNamePos);
+                }
+            }
+
+            body.writeInt(profiles.size());
+            for (SliceProfile profile : profiles) {
+                writeProfile(profile);
+            }
+            body.writeInt(profilesInfo.sliceProfiles.size());
+            for (Map.Entry<SliceKey, SliceProfile> sliceProfile : profilesInfo.sliceProfiles.entrySet()) {
+                SliceKey sliceKey = sliceProfile.getKey();
+                writeString(sliceKey.name());
+                body.writeLong(sliceKey.position());
+                writeString(sliceKey.functionName());
+                writeString(sliceKey.fileName());
+                body.writeInt(profileIds.get(sliceProfile.getValue()));
+            }
+            writeString(profilesInfo.className);
+        }
+
+        private void writeSignature(FunctionSignature signature) throws IOException {
+            body.writeInt(signature.parameterCount());
+            for (ArgumentNamePos parameter : signature.getParameters()) {
+                writeNamePos(parameter);
+                body.writeBoolean(parameter.isOptional());
+            }
+            body.writeInt(signature.getSpecifiers().size());
+            for (String specifier : signature.getSpecifiers()) {
+                writeString(specifier);
+            }
+        }
+
+        private void writeCallSites(CallSiteTable callSites) throws IOException {
+            body.writeInt(callSites.getCallArgumentCounts().size());
+            for (Map.Entry<String, Integer> call : callSites.getCallArgumentCounts().entrySet()) {
+                writeString(call.getKey());
+                body.writeInt(call.getValue());
+            }
+            body.writeInt(callSites.getConstructorArgumentCounts().size());
+            for (Map.Entry<String, Set<Integer>> constructor : callSites.getConstructorArgumentCounts().entrySet()) {
+                writeString(constructor.getKey());
+                body.writeInt(constructor.getValue().size());
+                for (int argumentCount : constructor.getValue()) {
+                    body.writeInt(argumentCount);
+                }
+            }
+        }
+
+        private void writeProfile(SliceProfile profile) throws IOException {
+            writeString(profile.fileName);
+            writeString(profile.functionName);
+            writeString(profile.varName);
+            writeString(profile.typeName);
+            body.writeLong(profile.definedPosition);
+            writeFunction(profile.function);
+
+            body.writeInt(profile.usedPositions.size());
+            for (SliceVariableAccess varAccess : profile.usedPositions) {
+                writeDataTuples(varAccess.readPositions);
+                writeDataTuples(varAccess.writePositions);
+            }
+
+            body.writeInt(profile.dependentVars.size());
+            for (NamePos dependentVar : profile.dependentVars) {
+                writeNamePos(dependentVar);
+            }
+
+            body.writeInt(profile.cfunctions.size());
+            for (CFunction cfunction : profile.cfunctions) {
+                writeString(cfunction.getName());
+                body.writeLong(cfunction.getPosition());
+                body.writeInt(cfunction.getArgPosIndex());
+                writeString(cfunction.getEnclFunctionName());
+                writeFunction(cfunction.getEnclFunction());
+                ArrayList<ArgumentNamePos> funcArgs = cfunction.getFuncArgs();
+                body.writeInt(funcArgs == null ? NONE : funcArgs.size());
+                if (funcArgs != null) {
+                    for (ArgumentNamePos funcArg : funcArgs) {
+                        writeNamePos(funcArg);
+                        body.writeBoolean(funcArg.isOptional());
+                    }
+                }
+            }
+        }
+
+        private void writeDataTuples(List<DataTuple> dataTuples) throws IOException {
+            body.writeInt(dataTuples.size());
+            for (DataTuple dataTuple : dataTuples) {
+                body.writeInt(dataTuple.accessType == null ? NONE : dataTuple.accessType.ordinal());
+                body.writeLong(dataTuple.accessPos);
+            }
+        }
+
+        private void writeFunctionNamePos(FunctionNamePos functionNamePos) throws IOException {
+            writeNamePos(functionNamePos);
+            writeString(functionNamePos.getFunctionDeclName());
+        }
+
+        private void writeNamePos(NamePos namePos) throws IOException {
+            writeString(namePos.getName());
+            writeString(namePos.getType());
+            body.writeLong(namePos.getPos());
+            body.writeBoolean(namePos.isPointer());
+        }
+
+        private void addFunction(FunctionScope function, List<FunctionScope> functions) {
+            if (function != null && !functionIds.containsKey(function)) {
+                functionIds.put(function, functions.size());
+                functions.add(function);
+            }
+        }
+
+        private void writeFunction(FunctionScope function) throws IOException {
+            body.writeInt(function == null ? NONE : functionIds.get(function));
+        }
+
+        private void writeString(String value) throws IOException {
+            body.writeInt(internString(value));
+        }
+
+        private int internString(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            return strings.computeIfAbsent(value, key -> strings.size());
+        }
+
+        private void writeTo(DataOutputStream out, String sourceFilePath) throws IOException {
+            body.flush();
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(sourceFilePath);
+            out.writeInt(strings.size());
+            for (String value : strings.keySet()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            bodyBytes.writeTo(out);
+            out.flush();
+        }
+    }
+
+    private static final class SnapshotReader {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+        private final List<FunctionScope> functions = new ArrayList<>();
+
+        private SnapshotReader(DataInputStream in) throws IOException {
+            this.in = in;
+            for (int i = in.readInt(); i > 0; i--) {
+                int length = in.readInt();
+                byte[] bytes = in.readNBytes(length);
+                if (bytes.length != length) {
+                    throw new EOFException();
+                }
+                strings.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+
+        private SliceProfilesInfo readProfilesInfo() throws IOException {
+            for (int i = in.readInt(); i > 0; i--) {
+                functions.add(new FunctionScope(readSignature(), readCallSites()));
+            }
+
+            Hashtable<FunctionNamePos, FunctionScope> functionScopes = new Hashtable<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                FunctionNamePos functionNamePos = readFunctionNamePos();
+                FunctionScope function = readFunction();
+                if (function != null) {
+                    functionScopes.put(functionNamePos, function);
+                }
+            }
+
+            Hashtable<String, List<FunctionNamePos>> functionDeclMap = new Hashtable<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                String name = readString();
+                List<FunctionNamePos> alias = new ArrayList<>();
+                for (int j = in.readInt(); j > 0; j--) {
+                    alias.add(readFunctionNamePos());
+                }
+                functionDeclMap.put(name, alias);
+            }
+
+            List<SliceProfile> profiles = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                profiles.add(readProfile());
+            }
+            Hashtable<SliceKey, SliceProfile> sliceProfiles = new Hashtable<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                SliceKey sliceKey = new SliceKey(readString(), in.readLong(), readString(), readString());
+                sliceProfiles.put(sliceKey, profiles.get(in.readInt()));
+            }
+            return new SliceProfilesInfo(sliceProfiles, functionScopes, functionDeclMap, readString());
+        }
+
+        private FunctionSignature readSignature() throws IOException {
+            ArrayList<ArgumentNamePos> parameters = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                parameters.add(new ArgumentNamePos(readNamePos(), in.readBoolean()));
+            }
+            List<String> specifiers = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                specifiers.add(readString());
+            }
+            return new FunctionSignature(parameters, specifiers);
+        }
+
+        private CallSiteTable readCallSites() throws IOException {
+            CallSiteTable callSites = new CallSiteTable();
+            for (int i = in.readInt(); i > 0; i--) {
+                callSites.addCall(readString(), in.readInt());
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                String typeName = readString();
+                for (int j = in.readInt(); j > 0; j--) {
+                    callSites.addConstructorCall(typeName, in.readInt());
+                }
+            }
+            return callSites;
+        }
+
+        private SliceProfile readProfile() throws IOException {
+            SliceProfile profile = new SliceProfile(readString(), readString(), readString(), readString(),
+                    in.readLong(), readFunction());
+
+            for (int i = in.readInt(); i > 0; i--) {
+                SliceVariableAccess varAccess = new SliceVariableAccess();
+                readDataTuples(varAccess.readPositions);
+                readDataTuples(varAccess.writePositions);
+                profile.usedPositions.add(varAccess);
+            }
+
+            for (int i = in.readInt(); i > 0; i--) {
+                profile.dependentVars.add(readNamePos());
+            }
+
+            for (int i = in.readInt(); i > 0; i--) {
+                String name = readString();
+                long position = in.readLong();
+                int argPosIndex = in.readInt();
+                String enclFunctionName = readString();
+                FunctionScope enclFunction = readFunction();
+                ArrayList<ArgumentNamePos> funcArgs = null;
+                int funcArgCount = in.readInt();
+                if (funcArgCount != NONE) {
+                    funcArgs = new ArrayList<>();
+                    for (int j = 0; j < funcArgCount; j++) {
+                        funcArgs.add(new ArgumentNamePos(readNamePos(), in.readBoolean()));
+                    }
+                }
+                if (name == null) {
+                    profile.cfunctions.add(new CFunction(argPosIndex, enclFunctionName, enclFunction));
+                } else {
+                    profile.cfunctions.add(new CFunction(name, position, argPosIndex, enclFunctionName,
+                            enclFunction, funcArgs));
+                }
+            }
+            return profile;
+        }
+
+        private void readDataTuples(List<DataTuple> dataTuples) throws IOException {
+            for (int i = in.readInt(); i > 0; i--) {
+                int accessType = in.readInt();
+                dataTuples.add(new DataTuple(accessType == NONE ? null : XmlUtil.DataAccessType.values()[accessType],
+                        in.readLong()));
+            }
+        }
+
+        private FunctionNamePos readFunctionNamePos() throws IOException {
+            return new FunctionNamePos(readNamePos(), readString());
+        }
+
+        private NamePos readNamePos() throws IOException {
+            return new NamePos(readString(), readString(), in.readLong(), in.readBoolean());
+        }
+
+        private FunctionScope readFunction() throws IOException {
+            int id = in.readInt();
+            return id == NONE ? null : functions.get(id);
+        }
+
+        private String readString() throws IOException {
+            return readStringAt(in.readInt());
+        }
+
+        private String readStringAt(int id) {
+            return id == NONE ? null : strings.get(id);
+        }
+    }
+}
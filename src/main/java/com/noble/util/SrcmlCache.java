@@ -0,0 +1,144 @@
+package com.noble.util;
+
+import com.noble.models.SliceProfilesInfo;
+import org.w3c.dom.Node;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.noble.util.UnitStreamReader.forEachUnit;
+
+/**
+ * On-disk cache of srcML units keyed by the SHA-256 of the srcML version, the file extension (srcML picks
+ * the language from it) and the source file content.
+ * Every entry holds a single gzipped {@code <unit>}, so a re-run only converts files whose content changed.
+ * Next to a unit the cache keeps a {@link SliceProfilesSnapshot} of its slice profiles.
+ */
+public final class SrcmlCache {
+
+    private static final String ENTRY_SUFFIX = ".xml.gz";
+    private static final String PROFILES_SUFFIX = ".profiles-v" + SliceProfilesSnapshot.FORMAT_VERSION + ".bin.gz";
+
+    private final Path cacheDirectory;
+    private final byte[] srcmlVersion;
+
+    public SrcmlCache(Path cacheDirectory, String srcmlVersion) {
+        this.cacheDirectory = cacheDirectory;
+        this.srcmlVersion = srcmlVersion.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static String srcmlVersion(String srcmlExecutable) {
+        try {
+            Process process = new ProcessBuilder(srcmlExecutable, "--version").redirectErrorStream(true).start();
+            String version;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                version = reader.readLine();
+            }
+            if (process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0 && version != null) {
+                return version.trim();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return srcmlExecutable;
+    }
+
+    public String key(Path sourceFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        String fileName = sourceFile.getFileName().toString();
+        digest.update(srcmlVersion);
+        digest.update((byte) 0);
+        digest.update(fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        try (InputStream in = Files.newInputStream(sourceFile)) {
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    public Node load(String key) throws IOException, XMLStreamException {
+        Path entry = entryPath(key, ENTRY_SUFFIX);
+        if (!Files.exists(entry)) {
+            return null;
+        }
+        AtomicReference<Node> unitNode = new AtomicReference<>();
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            forEachUnit(in, (fileName, node) -> unitNode.set(node));
+        }
+        return unitNode.get();
+    }
+
+    /**
+     * Deletes the unit entry, one that cannot be read is removed so the file is converted and stored again.
+     */
+    public void remove(String key) throws IOException {
+        Files.deleteIfExists(entryPath(key, ENTRY_SUFFIX));
+    }
+
+    public void store(String key, Node unitNode) throws IOException {
+        Path entry = entryPath(key, ENTRY_SUFFIX);
+        Files.createDirectories(entry.getParent());
+        Path temp = Files.createTempFile(entry.getParent(), key, ".tmp");
+        try {
+            try (Writer out = new OutputStreamWriter(new GZIPOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp))), StandardCharsets.UTF_8)) {
+                XmlUtil.writeXml(unitNode, out);
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public SliceProfilesInfo loadProfiles(String key, String sourceFilePath) throws IOException {
+        Path entry = entryPath(key, PROFILES_SUFFIX);
+        if (!Files.exists(entry)) {
+            return null;
+        }
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            return SliceProfilesSnapshot.read(in, sourceFilePath);
+        }
+    }
+
+    public void storeProfiles(String key, String sourceFilePath, SliceProfilesInfo profilesInfo)
+            throws IOException {
+        Path entry = entryPath(key, PROFILES_SUFFIX);
+        Files.createDirectories(entry.getParent());
+        Path temp = Files.createTempFile(entry.getParent(), key, ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                SliceProfilesSnapshot.write(profilesInfo, sourceFilePath, out);
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path entryPath(String key, String suffix) {
+        return cacheDirectory.resolve(key.substring(0, 2)).resolve(key + suffix);
+    }
+}
@@ -0,0 +1,109 @@
+package com.noble.util;
+
+import org.w3c.dom.Node;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The srcML tags the slicer looks at, so it can dispatch on a constant instead of comparing tag names. Nodes of a
+ * {@link SrcmlTree} know their tag without looking at their name, the tags of its names are resolved once per
+ * tree. Other nodes are looked up by name. Every tag the slicer does not look at is {@link #OTHER}.
+ */
+public enum SrcmlTag {
+    TEXT("#text"),
+    UNIT("unit"),
+    ARGUMENT("argument"),
+    ARGUMENT_LIST("argument_list"),
+    BLOCK("block"),
+    BLOCK_CONTENT("block_content"),
+    CALL("call"),
+    CASE("case"),
+    CAST("cast"),
+    CATCH("catch"),
+    CLASS("class"),
+    CONDITION("condition"),
+    CONSTRUCTOR("constructor"),
+    CONTROL("control"),
+    DECL("decl"),
+    DECL_STMT("decl_stmt"),
+    DESTRUCTOR("destructor"),
+    ELSE("else"),
+    EXPR("expr"),
+    EXPR_STMT("expr_stmt"),
+    EXTERN("extern"),
+    FOR("for"),
+    FUNCTION("function"),
+    FUNCTION_DECL("function_decl"),
+    IF("if"),
+    IF_STMT("if_stmt"),
+    INCR("incr"),
+    INDEX("index"),
+    INIT("init"),
+    LITERAL("literal"),
+    MACRO("macro"),
+    MEMBER_INIT_LIST("member_init_list"),
+    MODIFIER("modifier"),
+    NAME("name"),
+    NAMESPACE("namespace"),
+    OPERATOR("operator"),
+    PARAMETER("parameter"),
+    PARAMETER_LIST("parameter_list"),
+    RETURN("return"),
+    SPECIFIER("specifier"),
+    STATIC("static"),
+    STRUCT("struct"),
+    SWITCH("switch"),
+    TERNARY("ternary"),
+    THEN("then"),
+    TRY("try"),
+    TYPE("type"),
+    TYPEDEF("typedef"),
+    WHILE("while"),
+    OTHER(null);
+
+    private static final Map<String, SrcmlTag> TAGS = new HashMap<>();
+
+    static {
+        for (SrcmlTag tag : values()) {
+            if (tag.tagName != null) {
+                TAGS.put(tag.tagName, tag);
+            }
+        }
+    }
+
+    private final String tagName;
+
+    SrcmlTag(String tagName) {
+        this.tagName = tagName;
+    }
+
+    /**
+     * Name of the tag in srcML, null for {@link #OTHER}.
+     */
+    public String tagName() {
+        return tagName;
+    }
+
+    public static SrcmlTag of(String tagName) {
+        return TAGS.getOrDefault(tagName, OTHER);
+    }
+
+    public static SrcmlTag of(Node node) {
+        if (node instanceof SrcmlTree.Handle) {
+            return ((SrcmlTree.Handle) node).tag();
+        }
+        return of(node.getNodeName());
+    }
+
+    /**
+     * True if the node has this tag. Nodes of a {@link SrcmlTree} are compared by tag, others by name, so the
+     * check costs no more than comparing names on any node. Never true for {@link #OTHER}.
+     */
+    public boolean matches(Node node) {
+        if (node instanceof SrcmlTree.Handle) {
+            return this != OTHER && ((SrcmlTree.Handle) node).tag() == this;
+        }
+        return tagName != null && tagName.equals(node.getNodeName());
+    }
+}
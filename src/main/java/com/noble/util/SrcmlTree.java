@@ -0,0 +1,974 @@
+package com.noble.util;
+
+import org.w3c.dom.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only tree of one srcML unit kept in primitive arrays instead of DOM objects. Nodes are numbered in document
+ * order and every node is a handful of ints: its tag, parent, next sibling, the span of its text and the range of
+ * its children and attributes. All text lives in one char buffer in document order, so the text content of any
+ * element is a single range of it, and attribute values in another. Tag and attribute names are interned per tree
+ * and every name is resolved to its {@link SrcmlTag} once, when the tree is built.
+ * <p>
+ * The tree is navigated through the read-only part of {@link Node} and {@link Element} that {@link XmlUtil} and
+ * the slicer use, so code written against the DOM runs on it unchanged. Node handles are created on first access
+ * and then kept, a node is always the same object. Handles and attributes are safe to read from several threads.
+ * {@link #position(Node)} and {@link #attribute(Node, String)} read positions and attributes without going through
+ * attribute nodes, and equal texts and attribute values read from a tree share one string. The tree is not part of
+ * a {@link Document}: it has no owner document, is read without namespaces, and cloning, user data and the
+ * namespace-aware lookups are not supported.
+ */
+public final class SrcmlTree {
+
+    private static final String TEXT = "#text";
+    private static final String POS_START = "pos:start";
+    private static final int MAX_CACHED_STRINGS = 1 << 12;
+    private static final int NONE = -1;
+    private static final NodeList NO_CHILDREN = new NodeList() {
+        @Override
+        public Node item(int index) {
+            return null;
+        }
+
+        @Override
+        public int getLength() {
+            return 0;
+        }
+    };
+
+    private final String[] names;
+    private final SrcmlTag[] nameTags;
+    private final int[] tags;
+    private final int[] parents;
+    private final int[] nextSiblings;
+    private final int[] childStarts;
+    private final int[] children;
+    private final int[] textStarts;
+    private final int[] textEnds;
+    private final char[] text;
+    private final int[] attributeStarts;
+    private final int[] attributeNames;
+    private final int[] valueStarts;
+    private final char[] values;
+    private final Map<String, Integer> nameIds;
+    private final int posStartName;
+    private final Node[] handles;
+//  strings read from the tree, by hash, so a name read again is not copied again; a lost race only loses a copy
+    private final String[] strings;
+
+    private SrcmlTree(Builder builder) {
+        int size = builder.size;
+        this.names = builder.names.toArray(new String[0]);
+        this.nameTags = new SrcmlTag[names.length];
+        for (int name = 0; name < names.length; name++) {
+            nameTags[name] = SrcmlTag.of(names[name]);
+        }
+        this.tags = Arrays.copyOf(builder.tags, size);
+        this.parents = Arrays.copyOf(builder.parents, size);
+        this.textStarts = Arrays.copyOf(builder.textStarts, size);
+        this.textEnds = Arrays.copyOf(builder.textEnds, size);
+        this.text = Arrays.copyOf(builder.text, builder.textLength);
+        this.attributeStarts = Arrays.copyOf(builder.attributeStarts, size + 1);
+        this.attributeStarts[size] = builder.attributeCount;
+        this.attributeNames = Arrays.copyOf(builder.attributeNames, builder.attributeCount);
+        this.valueStarts = Arrays.copyOf(builder.valueStarts, builder.attributeCount + 1);
+        this.valueStarts[builder.attributeCount] = builder.valuesLength;
+        this.values = Arrays.copyOf(builder.values, builder.valuesLength);
+        this.nameIds = new HashMap<>(builder.nameIds);
+        this.posStartName = nameIds.getOrDefault(POS_START, NONE);
+        this.handles = new Node[size];
+        this.strings = new String[Integer.highestOneBit(Math.max(16, Math.min(size, MAX_CACHED_STRINGS)))];
+
+//      children of every node side by side, in document order, and each child linked to the next one
+        this.childStarts = new int[size + 1];
+        for (int node = 1; node < size; node++) {
+            childStarts[parents[node] + 1]++;
+        }
+        for (int node = 0; node < size; node++) {
+            childStarts[node + 1] += childStarts[node];
+        }
+        this.children = new int[Math.max(0, size - 1)];
+        this.nextSiblings = new int[size];
+        int[] filled = new int[size];
+        int[] lastChildren = new int[size];
+        Arrays.fill(nextSiblings, NONE);
+        Arrays.fill(lastChildren, NONE);
+        for (int node = 1; node < size; node++) {
+            int parent = parents[node];
+            children[childStarts[parent] + filled[parent]++] = node;
+            if (lastChildren[parent] != NONE) {
+                nextSiblings[lastChildren[parent]] = node;
+            }
+            lastChildren[parent] = node;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The unit element the tree was built from.
+     */
+    public Element root() {
+        return (Element) node(0);
+    }
+
+    public int size() {
+        return tags.length;
+    }
+
+    /**
+     * Start position of the element, {@link Position#NONE} if it has none. Elements of a tree are read in place,
+     * without an attribute node or a string.
+     */
+    public static long position(Node element) {
+        if (element instanceof ElementHandle) {
+            ElementHandle handle = (ElementHandle) element;
+            return handle.tree().position(handle.node);
+        }
+        NamedNodeMap attributes = element.getAttributes();
+        Node position = attributes == null ? null : attributes.getNamedItem(POS_START);
+        return position == null ? Position.NONE : Position.parse(position.getNodeValue());
+    }
+
+    /**
+     * Value of the attribute of the element, null if it has none. Elements of a tree are read without an
+     * attribute node.
+     */
+    public static String attribute(Node element, String name) {
+        if (element instanceof ElementHandle) {
+            ElementHandle handle = (ElementHandle) element;
+            int attribute = handle.tree().attribute(handle.node, name);
+            return attribute == NONE ? null : handle.tree().value(attribute);
+        }
+        NamedNodeMap attributes = element.getAttributes();
+        Node attribute = attributes == null ? null : attributes.getNamedItem(name);
+        return attribute == null ? null : attribute.getNodeValue();
+    }
+
+    private Node node(int node) {
+        if (node == NONE) {
+            return null;
+        }
+        Node handle = handles[node];
+        if (handle == null) {
+            synchronized (handles) {
+                handle = handles[node];
+                if (handle == null) {
+                    handle = tags[node] == 0 ? new TextHandle(node) : new ElementHandle(node);
+                    handles[node] = handle;
+                }
+            }
+        }
+        return handle;
+    }
+
+    private String text(int node) {
+        return string(text, textStarts[node], textEnds[node]);
+    }
+
+    private int attribute(int node, String name) {
+        Integer nameId = nameIds.get(name);
+        return nameId == null ? NONE : attribute(node, (int) nameId);
+    }
+
+    private int attribute(int node, int nameId) {
+        for (int attribute = attributeStarts[node]; attribute < attributeStarts[node + 1]; attribute++) {
+            if (attributeNames[attribute] == nameId) {
+                return attribute;
+            }
+        }
+        return NONE;
+    }
+
+    private String value(int attribute) {
+        return string(values, valueStarts[attribute], valueStarts[attribute + 1]);
+    }
+
+    private long position(int node) {
+        int attribute = posStartName == NONE ? NONE : attribute(node, posStartName);
+        return attribute == NONE ? Position.NONE :
+                Position.parse(values, valueStarts[attribute], valueStarts[attribute + 1]);
+    }
+
+    private String string(char[] characters, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + characters[i];
+        }
+        int slot = (hash ^ hash >>> 16) & (strings.length - 1);
+        String cached = strings[slot];
+        if (cached != null && cached.hashCode() == hash && matches(cached, characters, start, end)) {
+            return cached;
+        }
+        String string = new String(characters, start, end - start);
+        strings[slot] = string;
+        return string;
+    }
+
+    private static boolean matches(String string, char[] characters, int start, int end) {
+        if (string.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (string.charAt(i - start) != characters[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Index of the first node after the subtree of the node.
+     */
+    private int subtreeEnd(int node) {
+        for (int ancestor = node; ancestor != NONE; ancestor = parents[ancestor]) {
+            if (nextSiblings[ancestor] != NONE) {
+                return nextSiblings[ancestor];
+            }
+        }
+        return tags.length;
+    }
+
+    private static DOMException readOnly() {
+        return new DOMException(DOMException.NO_MODIFICATION_ALLOWED_ERR, "srcML trees are read-only");
+    }
+
+    private static DOMException notSupported() {
+        return new DOMException(DOMException.NOT_SUPPORTED_ERR, "Not supported by srcML trees");
+    }
+
+    /**
+     * Collects the nodes of a unit while it is read, in document order.
+     */
+    public static final class Builder {
+        private final List<String> names = new ArrayList<>(Collections.singletonList(TEXT));
+        private final Map<String, Integer> nameIds = new HashMap<>();
+        private int size;
+        private int[] tags = new int[256];
+        private int[] parents = new int[256];
+        private int[] textStarts = new int[256];
+        private int[] textEnds = new int[256];
+        private int[] attributeStarts = new int[257];
+        private char[] text = new char[4096];
+        private int textLength;
+        private int attributeCount;
+        private int[] attributeNames = new int[256];
+        private int[] valueStarts = new int[257];
+        private char[] values = new char[1024];
+        private int valuesLength;
+        private int current = NONE;
+
+        private Builder() {
+            nameIds.put(TEXT, 0);
+        }
+
+        /**
+         * Opens an element as the last child of the open one. Its attributes are added before anything else.
+         */
+        public Builder startElement(String name) {
+            current = addNode(name(name));
+            return this;
+        }
+
+        public Builder attribute(String name, String value) {
+            if (attributeCount + 1 >= attributeNames.length) {
+                attributeNames = Arrays.copyOf(attributeNames, attributeNames.length * 2);
+                valueStarts = Arrays.copyOf(valueStarts, valueStarts.length * 2);
+            }
+            attributeNames[attributeCount] = name(name);
+            valueStarts[attributeCount] = valuesLength;
+            attributeCount++;
+            if (valuesLength + value.length() > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, valuesLength + value.length()));
+            }
+            value.getChars(0, value.length(), values, valuesLength);
+            valuesLength += value.length();
+            return this;
+        }
+
+        /**
+         * True if the element opened last has the attribute.
+         */
+        public boolean hasAttribute(String name) {
+            Integer nameId = nameIds.get(name);
+            if (nameId == null) {
+                return false;
+            }
+            for (int attribute = attributeStarts[size - 1]; attribute < attributeCount; attribute++) {
+                if (attributeNames[attribute] == nameId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public Builder text(char[] characters, int start, int length) {
+            int node = addNode(0);
+            if (textLength + length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+            }
+            System.arraycopy(characters, start, text, textLength, length);
+            textLength += length;
+            textEnds[node] = textLength;
+            return this;
+        }
+
+        public Builder endElement() {
+            textEnds[current] = textLength;
+            current = parents[current];
+            return this;
+        }
+
+        /**
+         * True once every element opened was closed again.
+         */
+        public boolean complete() {
+            return size > 0 && current == NONE;
+        }
+
+        public SrcmlTree build() {
+            return new SrcmlTree(this);
+        }
+
+        private int name(String name) {
+            Integer nameId = nameIds.get(name);
+            if (nameId == null) {
+                nameId = names.size();
+                names.add(name);
+                nameIds.put(name, nameId);
+            }
+            return nameId;
+        }
+
+        private int addNode(int tag) {
+            if (size + 1 >= attributeStarts.length) {
+                int capacity = tags.length * 2;
+                tags = Arrays.copyOf(tags, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                textStarts = Arrays.copyOf(textStarts, capacity);
+                textEnds = Arrays.copyOf(textEnds, capacity);
+                attributeStarts = Arrays.copyOf(attributeStarts, capacity + 1);
+            }
+            int node = size++;
+            tags[node] = tag;
+            parents[node] = current;
+            textStarts[node] = textLength;
+            attributeStarts[node] = attributeCount;
+            return node;
+        }
+    }
+
+    /**
+     * Node of the tree, everything that would change it throws.
+     */
+    abstract class Handle implements Node {
+        final int node;
+
+        Handle(int node) {
+            this.node = node;
+        }
+
+        SrcmlTag tag() {
+            return nameTags[tags[node]];
+        }
+
+        SrcmlTree tree() {
+            return SrcmlTree.this;
+        }
+
+        /**
+         * Number of nodes in the subtree of the node, read off the numbering without creating a handle for them.
+         */
+        int subtreeSize() {
+            return subtreeEnd(node) - node;
+        }
+
+        @Override
+        public String getNodeName() {
+            return names[tags[node]];
+        }
+
+        @Override
+        public void setNodeValue(String nodeValue) {
+            throw readOnly();
+        }
+
+        @Override
+        public Node getParentNode() {
+            return node(parents[node]);
+        }
+
+        @Override
+        public Node getFirstChild() {
+            return childStarts[node] == childStarts[node + 1] ? null : node(children[childStarts[node]]);
+        }
+
+        @Override
+        public Node getLastChild() {
+            return childStarts[node] == childStarts[node + 1] ? null : node(children[childStarts[node + 1] - 1]);
+        }
+
+        @Override
+        public Node getPreviousSibling() {
+            int parent = parents[node];
+            if (parent == NONE) {
+                return null;
+            }
+            for (int child = childStarts[parent]; child < childStarts[parent + 1]; child++) {
+                if (children[child] == node) {
+                    return child == childStarts[parent] ? null : node(children[child - 1]);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Node getNextSibling() {
+            return node(nextSiblings[node]);
+        }
+
+        @Override
+        public Document getOwnerDocument() {
+            return null;
+        }
+
+        @Override
+        public Node insertBefore(Node newChild, Node refChild) {
+            throw readOnly();
+        }
+
+        @Override
+        public Node replaceChild(Node newChild, Node oldChild) {
+            throw readOnly();
+        }
+
+        @Override
+        public Node removeChild(Node oldChild) {
+            throw readOnly();
+        }
+
+        @Override
+        public Node appendChild(Node newChild) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean hasChildNodes() {
+            return childStarts[node] != childStarts[node + 1];
+        }
+
+        @Override
+        public Node cloneNode(boolean deep) {
+            throw notSupported();
+        }
+
+        @Override
+        public void normalize() {
+        }
+
+        @Override
+        public boolean isSupported(String feature, String version) {
+            return false;
+        }
+
+        @Override
+        public String getNamespaceURI() {
+            return null;
+        }
+
+        @Override
+        public String getPrefix() {
+            return null;
+        }
+
+        @Override
+        public void setPrefix(String prefix) {
+            throw readOnly();
+        }
+
+        @Override
+        public String getLocalName() {
+            return null;
+        }
+
+        @Override
+        public String getBaseURI() {
+            return null;
+        }
+
+        /**
+         * Nodes are numbered in document order, so their order and nesting are read off their numbers.
+         */
+        @Override
+        public short compareDocumentPosition(Node other) {
+            if (!(other instanceof Handle) || other instanceof AttributeHandle || ((Handle) other).tree() != tree()) {
+                throw notSupported();
+            }
+            int otherNode = ((Handle) other).node;
+            if (otherNode == node) {
+                return 0;
+            }
+            if (otherNode < node) {
+                return (short) (DOCUMENT_POSITION_PRECEDING |
+                        (node < subtreeEnd(otherNode) ? DOCUMENT_POSITION_CONTAINS : 0));
+            }
+            return (short) (DOCUMENT_POSITION_FOLLOWING |
+                    (otherNode < subtreeEnd(node) ? DOCUMENT_POSITION_CONTAINED_BY : 0));
+        }
+
+        @Override
+        public String getTextContent() {
+            return text(node);
+        }
+
+        @Override
+        public void setTextContent(String textContent) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean isSameNode(Node other) {
+            return this == other;
+        }
+
+        @Override
+        public String lookupPrefix(String namespaceURI) {
+            return null;
+        }
+
+        @Override
+        public boolean isDefaultNamespace(String namespaceURI) {
+            return false;
+        }
+
+        @Override
+        public String lookupNamespaceURI(String prefix) {
+            return null;
+        }
+
+        @Override
+        public boolean isEqualNode(Node arg) {
+            return this == arg;
+        }
+
+        @Override
+        public Object getFeature(String feature, String version) {
+            return null;
+        }
+
+        @Override
+        public Object setUserData(String key, Object data, UserDataHandler handler) {
+            throw notSupported();
+        }
+
+        @Override
+        public Object getUserData(String key) {
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + getNodeName() + ": " + getNodeValue() + "]";
+        }
+    }
+
+    private final class TextHandle extends Handle {
+
+        TextHandle(int node) {
+            super(node);
+        }
+
+        @Override
+        public String getNodeValue() {
+            return text(node);
+        }
+
+        @Override
+        public short getNodeType() {
+            return TEXT_NODE;
+        }
+
+        @Override
+        public NodeList getChildNodes() {
+            return NO_CHILDREN;
+        }
+
+        @Override
+        public NamedNodeMap getAttributes() {
+            return null;
+        }
+
+        @Override
+        public boolean hasAttributes() {
+            return false;
+        }
+    }
+
+    /**
+     * An element is also the list of its children, as in Xerces, so walking them allocates nothing.
+     */
+    private final class ElementHandle extends Handle implements Element, NodeList {
+
+        ElementHandle(int node) {
+            super(node);
+        }
+
+        @Override
+        public String getNodeValue() {
+            return null;
+        }
+
+        @Override
+        public short getNodeType() {
+            return ELEMENT_NODE;
+        }
+
+        @Override
+        public NodeList getChildNodes() {
+            return this;
+        }
+
+        @Override
+        public Node item(int index) {
+            int child = childStarts[node] + index;
+            return index < 0 || child >= childStarts[node + 1] ? null : node(children[child]);
+        }
+
+        @Override
+        public int getLength() {
+            return childStarts[node + 1] - childStarts[node];
+        }
+
+        @Override
+        public NamedNodeMap getAttributes() {
+            return new Attributes(node);
+        }
+
+        @Override
+        public boolean hasAttributes() {
+            return attributeStarts[node] != attributeStarts[node + 1];
+        }
+
+        @Override
+        public String getTagName() {
+            return getNodeName();
+        }
+
+        @Override
+        public String getAttribute(String name) {
+            int attribute = attribute(node, name);
+            return attribute == NONE ? "" : value(attribute);
+        }
+
+        @Override
+        public void setAttribute(String name, String value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            throw readOnly();
+        }
+
+        @Override
+        public Attr getAttributeNode(String name) {
+            int attribute = attribute(node, name);
+            return attribute == NONE ? null : new AttributeHandle(node, attribute);
+        }
+
+        @Override
+        public Attr setAttributeNode(Attr newAttr) {
+            throw readOnly();
+        }
+
+        @Override
+        public Attr removeAttributeNode(Attr oldAttr) {
+            throw readOnly();
+        }
+
+        /**
+         * Descendants with the tag, {@code *} for all elements, in document order.
+         */
+        @Override
+        public NodeList getElementsByTagName(String name) {
+            int end = subtreeEnd(node);
+            int[] matches = new int[16];
+            int count = 0;
+            for (int descendant = node + 1; descendant < end; descendant++) {
+                if (tags[descendant] != 0 && (name.equals("*") || names[tags[descendant]].equals(name))) {
+                    if (count == matches.length) {
+                        matches = Arrays.copyOf(matches, count * 2);
+                    }
+                    matches[count++] = descendant;
+                }
+            }
+            int[] found = matches;
+            int length = count;
+            return new NodeList() {
+                @Override
+                public Node item(int index) {
+                    return index < 0 || index >= length ? null : node(found[index]);
+                }
+
+                @Override
+                public int getLength() {
+                    return length;
+                }
+            };
+        }
+
+        @Override
+        public String getAttributeNS(String namespaceURI, String localName) {
+            throw notSupported();
+        }
+
+        @Override
+        public void setAttributeNS(String namespaceURI, String qualifiedName, String value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void removeAttributeNS(String namespaceURI, String localName) {
+            throw readOnly();
+        }
+
+        @Override
+        public Attr getAttributeNodeNS(String namespaceURI, String localName) {
+            throw notSupported();
+        }
+
+        @Override
+        public Attr setAttributeNodeNS(Attr newAttr) {
+            throw readOnly();
+        }
+
+        @Override
+        public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
+            throw notSupported();
+        }
+
+        @Override
+        public boolean hasAttribute(String name) {
+            return attribute(node, name) != NONE;
+        }
+
+        @Override
+        public boolean hasAttributeNS(String namespaceURI, String localName) {
+            throw notSupported();
+        }
+
+        @Override
+        public TypeInfo getSchemaTypeInfo() {
+            return null;
+        }
+
+        @Override
+        public void setIdAttribute(String name, boolean isId) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setIdAttributeNS(String namespaceURI, String localName, boolean isId) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setIdAttributeNode(Attr idAttr, boolean isId) {
+            throw readOnly();
+        }
+    }
+
+    /**
+     * View of the attributes of an element, created per call and holding nothing but the element.
+     */
+    private final class Attributes implements NamedNodeMap {
+        private final int node;
+
+        Attributes(int node) {
+            this.node = node;
+        }
+
+        @Override
+        public Node getNamedItem(String name) {
+            int attribute = attribute(node, name);
+            return attribute == NONE ? null : new AttributeHandle(node, attribute);
+        }
+
+        @Override
+        public Node setNamedItem(Node arg) {
+            throw readOnly();
+        }
+
+        @Override
+        public Node removeNamedItem(String name) {
+            throw readOnly();
+        }
+
+        @Override
+        public Node item(int index) {
+            int attribute = attributeStarts[node] + index;
+            return index < 0 || attribute >= attributeStarts[node + 1] ? null : new AttributeHandle(node, attribute);
+        }
+
+        @Override
+        public int getLength() {
+            return attributeStarts[node + 1] - attributeStarts[node];
+        }
+
+        @Override
+        public Node getNamedItemNS(String namespaceURI, String localName) {
+            throw notSupported();
+        }
+
+        @Override
+        public Node setNamedItemNS(Node arg) {
+            throw readOnly();
+        }
+
+        @Override
+        public Node removeNamedItemNS(String namespaceURI, String localName) {
+            throw readOnly();
+        }
+    }
+
+    /**
+     * Attribute of an element. Attributes are not part of the tree, so a new handle is created for every lookup.
+     */
+    private final class AttributeHandle extends Handle implements Attr {
+        private final int attribute;
+
+        AttributeHandle(int node, int attribute) {
+            super(node);
+            this.attribute = attribute;
+        }
+
+        @Override
+        SrcmlTag tag() {
+            return nameTags[attributeNames[attribute]];
+        }
+
+        @Override
+        int subtreeSize() {
+            return 1;
+        }
+
+        @Override
+        public String getNodeName() {
+            return names[attributeNames[attribute]];
+        }
+
+        @Override
+        public String getNodeValue() {
+            return value(attribute);
+        }
+
+        @Override
+        public short getNodeType() {
+            return ATTRIBUTE_NODE;
+        }
+
+        @Override
+        public Node getParentNode() {
+            return null;
+        }
+
+        @Override
+        public Node getFirstChild() {
+            return null;
+        }
+
+        @Override
+        public Node getLastChild() {
+            return null;
+        }
+
+        @Override
+        public Node getPreviousSibling() {
+            return null;
+        }
+
+        @Override
+        public Node getNextSibling() {
+            return null;
+        }
+
+        @Override
+        public boolean hasChildNodes() {
+            return false;
+        }
+
+        @Override
+        public NodeList getChildNodes() {
+            return NO_CHILDREN;
+        }
+
+        @Override
+        public NamedNodeMap getAttributes() {
+            return null;
+        }
+
+        @Override
+        public boolean hasAttributes() {
+            return false;
+        }
+
+        @Override
+        public String getTextContent() {
+            return value(attribute);
+        }
+
+        @Override
+        public boolean isSameNode(Node other) {
+            return other instanceof AttributeHandle && ((AttributeHandle) other).attribute == attribute &&
+                    ((AttributeHandle) other).tree() == tree();
+        }
+
+        @Override
+        public short compareDocumentPosition(Node other) {
+            throw notSupported();
+        }
+
+        @Override
+        public String getName() {
+            return getNodeName();
+        }
+
+        @Override
+        public boolean getSpecified() {
+            return true;
+        }
+
+        @Override
+        public String getValue() {
+            return value(attribute);
+        }
+
+        @Override
+        public void setValue(String value) {
+            throw readOnly();
+        }
+
+        @Override
+        public Element getOwnerElement() {
+            return (Element) node(node);
+        }
+
+        @Override
+        public TypeInfo getSchemaTypeInfo() {
+            return null;
+        }
+
+        @Override
+        public boolean isId() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.noble.util;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Canonical instances of the names, positions, function names and file paths the slices are made of, so equal
+ * symbols are shared and can be compared by reference. Symbols are held weakly: once no slice profile, key or
+ * tuple refers to one anymore it is dropped, so a session or a daemon that lets go of a file also lets go of its
+ * symbols. Safe for the concurrent slicing of units.
+ */
+public final class SymbolTable {
+
+    private static final int SEGMENTS = 16;
+    private static final Segment[] segments = new Segment[SEGMENTS];
+
+    static {
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            segments[segment] = new Segment();
+        }
+    }
+
+    private SymbolTable() {
+    }
+
+    /**
+     * Canonical instance of the string, which becomes canonical itself if no equal symbol is in use. Null stays
+     * null.
+     */
+    public static String intern(String symbol) {
+        if (symbol == null) {
+            return null;
+        }
+        Segment segment = segment(symbol);
+        synchronized (segment) {
+            String canonical = segment.get(symbol);
+            if (canonical == null) {
+                segment.symbols.put(symbol, new WeakReference<>(symbol));
+                canonical = symbol;
+            }
+            return canonical;
+        }
+    }
+
+    /**
+     * Canonical instance of the string if an equal symbol is in use, null otherwise. Unlike {@link #intern} it
+     * never adds a symbol, so looking up what does not exist leaves nothing behind.
+     */
+    public static String lookup(String symbol) {
+        Segment segment = segment(symbol);
+        synchronized (segment) {
+            return segment.get(symbol);
+        }
+    }
+
+    private static Segment segment(String symbol) {
+        int hash = symbol.hashCode();
+        return segments[(hash ^ hash >>> 16) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Part of the symbols, locked on its own so units sliced at the same time rarely wait for each other.
+     */
+    private static final class Segment {
+        private final WeakHashMap<String, WeakReference<String>> symbols = new WeakHashMap<>();
+
+        private String get(String symbol) {
+            WeakReference<String> canonical = symbols.get(symbol);
+            return canonical == null ? null : canonical.get();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.noble.util;
+
+import org.w3c.dom.Node;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads srcML output one {@code <unit>} at a time instead of building a DOM for the whole archive.
+ * Every unit is read into its own {@link SrcmlTree} and its root element handed to the consumer, so only
+ * the units still referenced by the caller are kept in memory.
+ */
+public final class UnitStreamReader {
+
+    private static final String UNIT = "unit";
+    private static final String FILENAME = "filename";
+    private static final String XMLNS = "xmlns";
+
+    private UnitStreamReader() {
+    }
+
+    public static void forEachUnit(InputStream in, BiConsumer<String, Node> unitConsumer)
+            throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XMLStreamReader reader = factory.createXMLStreamReader(in, StandardCharsets.UTF_8.name());
+        Map<String, String> archiveNamespaces = new LinkedHashMap<>();
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT || !UNIT.equals(reader.getLocalName())) {
+                    continue;
+                }
+                String fileName = reader.getAttributeValue(null, FILENAME);
+                if (fileName == null) {
+//                  archive root, its namespaces are copied onto every nested unit
+                    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                        archiveNamespaces.put(namespaceAttribute(reader.getNamespacePrefix(i)),
+                                reader.getNamespaceURI(i));
+                    }
+                    continue;
+                }
+                unitConsumer.accept(fileName, readUnit(reader, archiveNamespaces).root());
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static SrcmlTree readUnit(XMLStreamReader reader, Map<String, String> archiveNamespaces)
+            throws XMLStreamException {
+        SrcmlTree.Builder tree = SrcmlTree.builder();
+        startElement(reader, tree);
+        archiveNamespaces.forEach((name, uri) -> {
+            if (!tree.hasAttribute(name)) {
+                tree.attribute(name, uri);
+            }
+        });
+        while (!tree.complete()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    startElement(reader, tree);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    tree.endElement();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    tree.text(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+            }
+        }
+        return tree.build();
+    }
+
+    private static void startElement(XMLStreamReader reader, SrcmlTree.Builder tree) {
+        tree.startElement(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            tree.attribute(namespaceAttribute(reader.getNamespacePrefix(i)), reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            tree.attribute(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                    reader.getAttributeValue(i));
+        }
+    }
+
+    private static String namespaceAttribute(String prefix) {
+        return prefix == null || prefix.isEmpty() ? XMLNS : XMLNS + ":" + prefix;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+}
@@ -1,5 +1,7 @@
 package com.noble.util;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
 
 import com.noble.models.*;
@@ -22,8 +24,8 @@ public final class XmlUtil {
         return nodeList.getLength() == 0 ? Collections.emptyList() : new NodeListWrapper(nodeList);
     }
 
-    public static String getNodePos(Node tempNode) {
-        return tempNode.getAttributes().getNamedItem("pos:start").getNodeValue();
+    public static long getNodePos(Node tempNode) {
+        return SrcmlTree.position(tempNode);
     }
 
     public static List<Node> getFunctionParamList(Node functionNode) {
@@ -48,52 +50,94 @@ public final class XmlUtil {
         return functionParams;
     }
 
+    /**
+     * Children named {@code tag} of the first node, in depth-first order starting with {@code parent}, that has
+     * any.
+     */
     public static List<Node> getNodeByName(Node parent, String tag) {
+        SrcmlTag srcmlTag = SrcmlTag.of(tag);
+        Node holder = findHolder(parent, srcmlTag, tag);
+        if (holder == null) {
+            return Collections.emptyList();
+        }
+        List<Node> namedNodes = new ArrayList<>();
+        collectChildren(holder, srcmlTag, tag, namedNodes);
+        return namedNodes;
+    }
 
-        List<Node> namedNodes = getNodesBase(parent, tag);
-        if (namedNodes.size() > 0) {
-            return namedNodes;
-        }
-        NodeList deep = parent.getChildNodes();
-        for (int i = 0, len = deep.getLength(); i < len; i++) {
-            if (deep.item(i).getNodeType() == Node.ELEMENT_NODE) {
-                Node childElement = deep.item(i);
-                List<Node> attr = getNodeByName(childElement, tag);
-                if (attr.size() > 0) {
-                    return attr;
-                }
+    /**
+     * Name of the first class of the unit, null if it has none.
+     */
+    public static String findClassName(Node unitNode) {
+        Node classNode = firstNodeByName(unitNode, "class");
+        Node nameNode = classNode == null ? null : firstNodeByName(classNode, "name");
+        return nameNode == null ? null : nameNode.getTextContent();
+    }
+
+    /**
+     * Same as the first element of {@link #getNodeByName(Node, String)}, without building the list.
+     */
+    public static Node firstNodeByName(Node parent, String tag) {
+        SrcmlTag srcmlTag = SrcmlTag.of(tag);
+        Node holder = findHolder(parent, srcmlTag, tag);
+        if (holder == null) {
+            return null;
+        }
+        for (Node child = holder.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (hasTag(child, srcmlTag, tag)) {
+                return child;
             }
         }
-
-        return namedNodes;
+        return null;
     }
 
     public static List<Node> getNodeByName(Node parent, String tag, Boolean all) {
-        return getNodesByName(parent, tag, all);
+        List<Node> nodeList = new ArrayList<>();
+        collectNodesByName(parent, SrcmlTag.of(tag), tag, nodeList);
+        return nodeList;
     }
 
-    private static List<Node> getNodesByName(Node parent, String tag, Boolean all) {
-        List<Node> nodeList = new ArrayList<>(getNodesBase(parent, tag));
+    /**
+     * True if the node is named {@code tag}, whose {@link SrcmlTag} is {@code srcmlTag}. Tags the slicer knows are
+     * compared as constants, other names as strings.
+     */
+    private static boolean hasTag(Node node, SrcmlTag srcmlTag, String tag) {
+        return srcmlTag == SrcmlTag.OTHER ? tag.equals(node.getNodeName()) : srcmlTag.matches(node);
+    }
 
-        NodeList deep = parent.getChildNodes();
-        for (int i = 0, len = deep.getLength(); i < len; i++) {
-            if (deep.item(i).getNodeType() == Node.ELEMENT_NODE) {
-                Node childElement = deep.item(i);
-                nodeList.addAll(getNodesByName(childElement, tag, all));
+    private static Node findHolder(Node parent, SrcmlTag srcmlTag, String tag) {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (hasTag(child, srcmlTag, tag)) {
+                return parent;
             }
         }
-        return nodeList;
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                Node holder = findHolder(child, srcmlTag, tag);
+                if (holder != null) {
+                    return holder;
+                }
+            }
+        }
+        return null;
     }
 
-    private static List<Node> getNodesBase(Node parent, String tag) {
-        NodeList children = parent.getChildNodes();
-        List<Node> namedNodes = new LinkedList<>(asList(children));
-        for (int x = namedNodes.size() - 1; x >= 0; x--) {
-            if (!namedNodes.get(x).getNodeName().equals(tag)) {
-                namedNodes.remove(x);
+//  a node's own matching children come before anything found below them, callers rely on that order
+    private static void collectNodesByName(Node parent, SrcmlTag srcmlTag, String tag, List<Node> nodeList) {
+        collectChildren(parent, srcmlTag, tag, nodeList);
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                collectNodesByName(child, srcmlTag, tag, nodeList);
+            }
+        }
+    }
+
+    private static void collectChildren(Node parent, SrcmlTag srcmlTag, String tag, List<Node> nodeList) {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (hasTag(child, srcmlTag, tag)) {
+                nodeList.add(child);
             }
         }
-        return namedNodes;
     }
 
     public static FunctionNamePos getFunctionNamePos(Node node) {
@@ -101,7 +145,7 @@ public final class XmlUtil {
 
         String functionDeclName = namePos.getName();
 
-        if (node.getNodeName().equals("name")) {
+        if (SrcmlTag.NAME.matches(node)) {
             functionDeclName = node.getTextContent();
         }
 
@@ -123,25 +167,23 @@ public final class XmlUtil {
 
 
     public static NamePos getNamePosTextPair(Node node) {
-        NamePos namePos = new NamePos("", "", "", false);
+        NamePos namePos = new NamePos("", "", Position.NONE, false);
         if (node == null) {
             return namePos;
         }
         NodeList nodeList = node.getChildNodes();
         boolean isPointer = false;
-        Set<String> names = new HashSet<>();
-        names.add("decl");
         for (int count = 0; count < nodeList.getLength(); count++) {
             Node tempNode = nodeList.item(count);
 
             if (tempNode.getNodeType() != Node.ELEMENT_NODE || !tempNode.hasAttributes() || !tempNode.hasChildNodes()) {
                 continue;
             }
-            if (tempNode.getNodeName().equals("name")) {
-                String linePos = getNodePos(tempNode);
+            if (SrcmlTag.NAME.matches(tempNode)) {
+                long linePos = getNodePos(tempNode);
                 if (tempNode.getNextSibling() != null &&
                         tempNode.getNextSibling().getNodeType() == Node.ELEMENT_NODE) {
-                    if (((Element) tempNode.getNextSibling()).getTagName().equals("modifier") &&
+                    if (SrcmlTag.MODIFIER.matches(tempNode.getNextSibling()) &&
                             tempNode.getNextSibling().getNodeValue() != null) {
                         isPointer = tempNode.getNextSibling().getNodeValue().equals("*") ||
                                 tempNode.getNextSibling().getNodeValue().equals("&");
@@ -155,7 +197,7 @@ public final class XmlUtil {
                         NodeList typeList = typNode.get(0).getChildNodes();
                         for (int c = 0; c < typeList.getLength(); c++) {
                             Node tempType = typeList.item(c);
-                            if (tempType.getNodeName().equals("name")) {
+                            if (SrcmlTag.NAME.matches(tempType)) {
                                 String filler = "~";
                                 if (varType.toString().equals("")) {
                                     filler = "";
@@ -184,15 +226,15 @@ public final class XmlUtil {
                             linePos, isPointer);
                 }
                 break;
-            } else if (tempNode.getNodeName().equals("literal")) {
+            } else if (SrcmlTag.LITERAL.matches(tempNode)) {
                 return new NamePos(tempNode.getTextContent(),
-                        tempNode.getAttributes().getNamedItem("type").getNodeValue(), getNodePos(tempNode),
+                        SrcmlTree.attribute(tempNode, "type"), getNodePos(tempNode),
                         false);
-            } else if (names.contains(tempNode.getNodeName())) {
+            } else if (SrcmlTag.DECL.matches(tempNode)) {
                 return getNamePosTextPair(tempNode);
             }
         }
-        if (node.getNodeName().equals("name") && namePos.getName().equals("")) {
+        if (SrcmlTag.NAME.matches(node) && namePos.getName().equals("")) {
             namePos = new NamePos(node.getFirstChild().getNodeValue(), "", getNodePos(node),
                     false);
         }
@@ -211,9 +253,101 @@ public final class XmlUtil {
         return asList(allChilds);
     }
 
+    /**
+     * Number of nodes in the subtree of the node, the node and text nodes included. Nodes of a {@link SrcmlTree}
+     * are not walked, their number is known from the tree.
+     */
+    public static int countNodes(Node root) {
+        if (root instanceof SrcmlTree.Handle) {
+            return ((SrcmlTree.Handle) root).subtreeSize();
+        }
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            count++;
+            if (node.getFirstChild() != null) {
+                node = node.getFirstChild();
+                continue;
+            }
+            while (node != root && node.getNextSibling() == null) {
+                node = node.getParentNode();
+            }
+            node = node == root ? null : node.getNextSibling();
+        }
+        return count;
+    }
+
+    /**
+     * Writes the element and everything below it as an XML document.
+     */
+    public static void writeXml(Node root, Writer out) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        writeNode(root, out);
+    }
+
+    private static void writeNode(Node node, Writer out) throws IOException {
+        if (node.getNodeType() != Node.ELEMENT_NODE) {
+            writeEscaped(node.getNodeValue(), false, out);
+            return;
+        }
+        out.write('<');
+        out.write(node.getNodeName());
+        NamedNodeMap attributes = node.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            out.write(' ');
+            out.write(attribute.getNodeName());
+            out.write("=\"");
+            writeEscaped(attribute.getNodeValue(), true, out);
+            out.write('"');
+        }
+        if (!node.hasChildNodes()) {
+            out.write("/>");
+            return;
+        }
+        out.write('>');
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            writeNode(child, out);
+        }
+        out.write("</");
+        out.write(node.getNodeName());
+        out.write('>');
+    }
+
+    private static void writeEscaped(String value, boolean attribute, Writer out) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                case '"':
+                    out.write(attribute ? "&quot;" : "\"");
+                    break;
+                case '\n':
+                case '\r':
+                case '\t':
+                    if (attribute) {
+                        out.write("&#" + (int) c + ";");
+                    } else {
+                        out.write(c);
+                    }
+                    break;
+                default:
+                    out.write(c);
+            }
+        }
+    }
+
     public static ArrayList<ArgumentNamePos> findFunctionParameters(Node enclFunctionNode) {
         ArrayList<ArgumentNamePos> parameters = new ArrayList<>();
-        Node parameterList = nodeAtIndex(getNodeByName(enclFunctionNode, "parameter_list"), 0);
+        Node parameterList = firstNodeByName(enclFunctionNode, "parameter_list");
         if (parameterList == null) {
             return parameters;
         }
@@ -222,7 +356,7 @@ public final class XmlUtil {
             List<Node> nameNode = getNodeByName(paramDecl, "name");
             boolean isOptional = getNodeByName(paramDecl, "init").size() > 0;
             if (nameNode.size() < 1) {
-                parameters.add(new ArgumentNamePos("NoNameParam", "", String.valueOf(parameters.size()),
+                parameters.add(new ArgumentNamePos("NoNameParam", "", Position.ofLine(parameters.size()),
                         false, isOptional));
             } else {
                 parameters.add(new ArgumentNamePos(getNamePosTextPair(nameNode.get(0)), isOptional));
@@ -231,6 +365,39 @@ public final class XmlUtil {
         return parameters;
     }
 
+    public static FunctionSignature findFunctionSignature(Node functionNode) {
+        List<String> specifiers = new ArrayList<>();
+        for (Node specifier : getNodeByName(functionNode, "specifier")) {
+            specifiers.add(specifier.getTextContent());
+        }
+        return new FunctionSignature(findFunctionParameters(functionNode), specifiers);
+    }
+
+    public static CallSiteTable findCallSites(Node functionNode) {
+        CallSiteTable callSites = new CallSiteTable();
+        for (Node call : getNodeByName(functionNode, "call", true)) {
+            String calleeName = getNamePosTextPair(call).getName();
+            Node argumentList = firstNodeByName(call, "argument_list");
+            if (calleeName == null || argumentList == null) {
+                continue;
+            }
+            callSites.addCall(calleeName, getNodeByName(argumentList, "argument").size());
+        }
+
+        for (Node decl : getNodeByName(functionNode, "decl", true)) {
+            if (firstNodeByName(decl, "init") != null) {
+                continue;
+            }
+            String constructorTypeName = getNamePosTextPair(decl).getType();
+            Node argumentList = firstNodeByName(decl, "argument_list");
+            if (constructorTypeName == null || argumentList == null) {
+                continue;
+            }
+            callSites.addConstructorCall(constructorTypeName, getNodeByName(argumentList, "argument").size());
+        }
+        return callSites;
+    }
+
     static final class NodeListWrapper extends AbstractList<Node> implements RandomAccess {
         private final NodeList list;
 
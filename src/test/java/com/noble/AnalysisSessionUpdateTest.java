@@ -0,0 +1,97 @@
+package com.noble;
+
+import com.noble.models.EnclNamePosTuple;
+import com.noble.models.SliceProfilesInfo;
+import com.noble.util.UnitStreamReader;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.w3c.dom.Node;
+
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * An incremental session brought up to date with {@link AnalysisSession#update} must end up with the graph and
+ * the violations a new session builds for the same files.
+ */
+class AnalysisSessionUpdateTest {
+
+    private static final Map<String, Node> units = new TreeMap<>();
+
+    @BeforeAll
+    static void readFixture() throws Exception {
+        try (InputStream in = new GZIPInputStream(
+                AnalysisSessionUpdateTest.class.getResourceAsStream("/fixtures/large.xml.gz"))) {
+            UnitStreamReader.forEachUnit(in, units::put);
+        }
+        assertFalse(units.isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3, 4, 5, 7})
+    void updateMatchesNewSession(int stride) throws Exception {
+        List<String> files = new ArrayList<>(units.keySet());
+        List<String> removedFiles = new ArrayList<>();
+        for (int i = 0; i < files.size(); i += stride) {
+            removedFiles.add(files.get(i));
+        }
+        List<String> keptFiles = new ArrayList<>(files);
+        keptFiles.removeAll(removedFiles);
+
+        AnalysisSession session = new AnalysisSession(config(true));
+        session.loadSliceProfiles(slice(files));
+        session.analyze();
+
+        Hashtable<String, Set<List<EnclNamePosTuple>>> violations = session.update(Map.of(), removedFiles);
+        assertSameAnalysis(keptFiles, session, violations);
+
+        violations = session.update(slice(removedFiles), List.of());
+        assertSameAnalysis(files, session, violations);
+
+        List<String> changedFiles = keptFiles.subList(0, Math.min(stride, keptFiles.size()));
+        violations = session.update(slice(changedFiles), List.of());
+        assertSameAnalysis(files, session, violations);
+    }
+
+    private static void assertSameAnalysis(List<String> files, AnalysisSession updated,
+                                           Hashtable<String, Set<List<EnclNamePosTuple>>> updatedViolations)
+            throws Exception {
+        AnalysisSession fresh = new AnalysisSession(config(false));
+        fresh.loadSliceProfiles(slice(files));
+        Hashtable<String, Set<List<EnclNamePosTuple>>> freshViolations = fresh.analyze();
+        assertEquals(describe(fresh.dependencyGraph()), describe(updated.dependencyGraph()));
+        assertEquals(freshViolations, updatedViolations);
+    }
+
+    private static AnalysisConfig config(boolean incremental) {
+        return AnalysisConfig.builder().incremental(incremental).srcmlCacheDirectory("").build();
+    }
+
+    private static Map<String, SliceProfilesInfo> slice(Collection<String> files) {
+        Map<String, SliceProfilesInfo> profilesInfo = new LinkedHashMap<>();
+        for (String file : files) {
+            profilesInfo.put(file, new SliceGenerator(units.get(file), file).generate());
+        }
+        return profilesInfo;
+    }
+
+    /**
+     * Every vertex in the order it was added, with its successors in the order of their edges.
+     */
+    static List<String> describe(DependencyGraph graph) {
+        List<String> vertices = new ArrayList<>();
+        for (int vertexId = 0; vertexId < graph.vertexCount(); vertexId++) {
+            StringBuilder vertex = new StringBuilder(graph.vertex(vertexId).toString()).append(" ->");
+            for (int i = 0; i < graph.successorCount(vertexId); i++) {
+                vertex.append(' ').append(graph.vertex(graph.successor(vertexId, i)));
+            }
+            vertices.add(vertex.toString());
+        }
+        return vertices;
+    }
+}
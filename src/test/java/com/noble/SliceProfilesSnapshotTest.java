@@ -0,0 +1,91 @@
+package com.noble;
+
+import com.noble.models.EnclNamePosTuple;
+import com.noble.models.SliceProfilesInfo;
+import com.noble.util.SliceProfilesSnapshot;
+import com.noble.util.UnitStreamReader;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Slice profiles restored from their snapshots must lead to the graph and the violations of freshly sliced ones,
+ * and a damaged snapshot must fail to read with an {@link IOException}.
+ */
+class SliceProfilesSnapshotTest {
+
+    private static final Map<String, Node> units = new TreeMap<>();
+
+    @BeforeAll
+    static void readFixture() throws Exception {
+        try (InputStream in = new GZIPInputStream(
+                SliceProfilesSnapshotTest.class.getResourceAsStream("/fixtures/large.xml.gz"))) {
+            UnitStreamReader.forEachUnit(in, units::put);
+        }
+        assertFalse(units.isEmpty());
+    }
+
+    @Test
+    void restoredProfilesMatchSlicedProfiles() throws Exception {
+        Map<String, SliceProfilesInfo> restored = new LinkedHashMap<>();
+        for (Map.Entry<String, SliceProfilesInfo> profilesInfo : slice().entrySet()) {
+            byte[] snapshot = write(profilesInfo.getKey(), profilesInfo.getValue());
+            restored.put(profilesInfo.getKey(), SliceProfilesSnapshot.read(new ByteArrayInputStream(snapshot),
+                    profilesInfo.getKey()));
+        }
+
+        AnalysisSession fresh = new AnalysisSession(config());
+        fresh.loadSliceProfiles(slice());
+        Hashtable<String, Set<List<EnclNamePosTuple>>> freshViolations = fresh.analyze();
+        AnalysisSession restoredSession = new AnalysisSession(config());
+        restoredSession.loadSliceProfiles(restored);
+        Hashtable<String, Set<List<EnclNamePosTuple>>> restoredViolations = restoredSession.analyze();
+        assertEquals(AnalysisSessionUpdateTest.describe(fresh.dependencyGraph()),
+                AnalysisSessionUpdateTest.describe(restoredSession.dependencyGraph()));
+        assertEquals(freshViolations, restoredViolations);
+    }
+
+    @Test
+    void damagedSnapshotFailsToRead() throws Exception {
+        Map.Entry<String, SliceProfilesInfo> profilesInfo = slice().entrySet().iterator().next();
+        byte[] snapshot = write(profilesInfo.getKey(), profilesInfo.getValue());
+//      past the magic, the version and the path every byte in turn is set to one that makes counts and indexes
+//      invalid, reading must either succeed or fail with an IOException
+        int header = 10 + snapshot.length - write("", profilesInfo.getValue()).length;
+        for (int i = header; i < snapshot.length; i++) {
+            byte[] damaged = snapshot.clone();
+            damaged[i] = (byte) 0x80;
+            try {
+                SliceProfilesSnapshot.read(new ByteArrayInputStream(damaged), profilesInfo.getKey());
+            } catch (IOException expected) {
+            }
+        }
+        assertThrows(IOException.class, () -> SliceProfilesSnapshot.read(
+                new ByteArrayInputStream(Arrays.copyOf(snapshot, snapshot.length / 2)), profilesInfo.getKey()));
+    }
+
+    private static byte[] write(String sourceFilePath, SliceProfilesInfo profilesInfo) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SliceProfilesSnapshot.write(profilesInfo, sourceFilePath, out);
+        return out.toByteArray();
+    }
+
+    private static AnalysisConfig config() {
+        return AnalysisConfig.builder().srcmlCacheDirectory("").build();
+    }
+
+    private static Map<String, SliceProfilesInfo> slice() {
+        Map<String, SliceProfilesInfo> profilesInfo = new LinkedHashMap<>();
+        units.forEach((file, unit) -> profilesInfo.put(file, new SliceGenerator(unit, file).generate()));
+        return profilesInfo;
+    }
+}